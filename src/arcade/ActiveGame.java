@@ -34,7 +34,6 @@ public class ActiveGame extends ArcadeGame {
     // Constructor //
     public ActiveGame(String id, String name, int price, int minAge) throws InvalidGameIdException{
         super(id, name, price);
-        validateId(id);
         this.minAge = minAge;
     }
 
@@ -68,6 +67,11 @@ public class ActiveGame extends ArcadeGame {
         return minAge;
     }
 
+    @Override
+    public GameType getGameType(){
+        return GameType.ACTIVE;
+    }
+
     // Overrides the toString method
     // Providing a formatted ActiveGame representation
     @Override
@@ -17,10 +17,40 @@
 
 
  Data Structure reasoning:
- Using HashMaps, for O(1) retrieval
+ Using hash maps, for O(1) retrieval
  of a customer or game using their ID
  rather than ArrayList O(n) for time efficiency
  as data collection scales
+ IDs are packed into a long (CompactId) and the maps are
+ open addressing LongKeyMaps, so a lookup never hashes or
+ compares Strings and an entry is 2 array slots
+ LongKeyMap lookups are lock-free and balances change by
+ CAS, so any arcade can be shared by several till threads,
+ revenue is kept in a LongAdder so concurrent plays never
+ lose an update
+ Game prices are also kept in a PriceIndex, a sorted
+ primitive array updated as games are added, so the
+ median and other price statistics never re-sort
+ Games and their indexes make up a GameCatalogue held
+ through one volatile reference, so replaceGames swaps
+ the whole catalogue at once while plays carry on, each
+ play reading the reference once for a consistent view
+ An optional BalanceLeaderboard ranks customers, a balance
+ change only queues the customer for the next read, so the
+ richest customers and ranks are O(log n) lookups without
+ plays sharing a lock, while off rankings scan the customers
+ Games are also indexed by GameType, EquipmentType and
+ reward payout in a GameTypeIndex, so type counts are
+ O(1) and filtered lookups never scan the catalogue
+ An optional TransactionJournal records new customers,
+ added funds and charges so they can be recovered
+ Optional ArcadeMetrics count plays, declines, revenue and
+ latency, while off the hot path only checks for null
+ Optional PlayAnalytics keep the same plays in rolling
+ minute, hour and day windows, again a null check when off
+ Revenue is long pence throughout, an optional
+ RevenueLedger posts it per game, customer and day and
+ reconciles the subtotals against the headline revenue
 
  History: 04/05/2025 v 1.00
 
@@ -34,121 +64,463 @@ import exceptions.InsufficientBalanceException;
 import exceptions.InvalidCustomerException;
 import exceptions.InvalidGameIdException;
 
+import money.Money;
+import validation.CompactId;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 public class Arcade {
 
     // Member Variables //
     private final String name;
-    private int revenue;
-    private final Map<String, ArcadeGame> games;
-    private final Map<String, Customer> customers;
+    private final LongAdder revenue;
+    private volatile GameCatalogue catalogue;
+    private final LongKeyMap<Customer> customers;
+    private volatile BalanceLeaderboard leaderboard;
+    private volatile TransactionJournal journal;
+    private volatile ArcadeMetrics metrics;
+    private volatile PlayAnalytics analytics;
+    private volatile RevenueLedger ledger;
+    // Serialises adding games with replacing the catalogue
+    private final Object catalogueLock = new Object();
+    // Serialises adding customers, never taken by plays
+    private final Object customerLock = new Object();
 
-    // Constructor //
+    // Constructors //
+    // Every arcade can be shared between till threads
     public Arcade(String name) {
         this.name = name;
-        this.revenue = 0;
-        this.games = new HashMap<>();
-        this.customers = new HashMap<>();
+        this.revenue = new LongAdder();
+        this.catalogue = new GameCatalogue();
+        this.customers = new LongKeyMap<>();
+    }
+
+    // Kept for existing callers, every arcade is now safe to
+    // share so concurrent is ignored
+    @Deprecated
+    public Arcade(String name, boolean concurrent) {
+        this(name);
     }
 
     // Functions //
 
     // ADD //
     // Allows system to add customer
-    // Enforces uniqueness
+    // Enforces uniqueness, adds are serialised so the
+    // check, journal record and insert are one step
     public void addCustomer(Customer customer) throws InvalidCustomerException {
-        if (customers.containsKey(customer.getId())) {
-            throw new InvalidCustomerException("Customer ID already exists.");
+        long key = CompactId.encodeCustomerId(customer.getId());
+        if (key == CompactId.INVALID) {
+            throw new InvalidCustomerException("Invalid customer ID.");
+        }
+        synchronized (customerLock) {
+            if (customers.get(key) != null) {
+                throw new InvalidCustomerException("Customer ID already exists.");
+            }
+            // Journaled and hooked before it's visible, so every
+            // change made through the arcade is seen and journaled
+            // after its ADD_CUSTOMER record, at the balance it had
+            TransactionJournal journal = this.journal;
+            if (journal != null) {
+                try {
+                    journal.recordAddCustomer(customer);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            customer.setBalanceListener(this::onBalanceChanged);
+            customers.putIfAbsent(key, customer);
+        }
+        BalanceLeaderboard leaderboard = this.leaderboard;
+        if (leaderboard != null) {
+            leaderboard.add(customer);
         }
-        customers.put(customer.getId(), customer);
     }
 
     // Allows system to add game
-    // Puts it within the hashmap
+    // Publishes a new catalogue, the current one plus this game
     // Enforces uniqueness
     public void addArcadeGame(ArcadeGame game) throws InvalidGameIdException {
-        if (games.containsKey(game.getId())) {
-            throw new InvalidGameIdException("Game ID already exists.");
+        // Locked so two adds, or an add and a replace, never
+        // publish over each other
+        synchronized (catalogueLock) {
+            catalogue = new GameCatalogue.Builder(catalogue).add(game).build();
+        }
+    }
+
+    // Adds several games as one new catalogue, all or none,
+    // IDs must be new and unique among themselves
+    public void addArcadeGames(Collection<? extends ArcadeGame> games) throws InvalidGameIdException {
+        synchronized (catalogueLock) {
+            GameCatalogue current = catalogue;
+            // Checked first so a refused game leaves nothing behind
+            Set<Long> keys = new HashSet<>();
+            for (ArcadeGame game : games) {
+                long key = CompactId.encodeGameId(game.getId());
+                if (key == CompactId.INVALID) {
+                    throw new InvalidGameIdException("Invalid game ID.");
+                }
+                if (current.get(key) != null || !keys.add(key)) {
+                    throw new InvalidGameIdException("Game ID already exists.");
+                }
+            }
+            GameCatalogue.Builder builder = new GameCatalogue.Builder(current);
+            for (ArcadeGame game : games) {
+                builder.add(game);
+            }
+            catalogue = builder.build();
+        }
+    }
+
+    // REPLACE //
+    // Publishes a new catalogue in place of the current one,
+    // plays already running finish against the old one,
+    // returns the old catalogue
+    public GameCatalogue replaceGames(GameCatalogue replacement) {
+        if (replacement == null) {
+            throw new NullPointerException("Catalogue can't be null.");
+        }
+        synchronized (catalogueLock) {
+            GameCatalogue old = catalogue;
+            catalogue = replacement;
+            return old;
         }
-        games.put(game.getId(), game);
     }
 
     // GET //
     // Retrieves customer from the Hashmap
     public Customer getCustomer(String customerID) throws InvalidCustomerException {
-        if (!customers.containsKey(customerID)) {
+        Customer customer = findCustomer(customerID);
+        if (customer == null) {
             throw new InvalidCustomerException("Customer ID doesn't exist.");
         }
-        return customers.get(customerID);
+        return customer;
     }
 
     // Retrieves game from the Hashmap
     public ArcadeGame getArcadeGame(String gameID) throws InvalidGameIdException {
-        if (!games.containsKey(gameID)) {
+        ArcadeGame game = findArcadeGame(gameID);
+        if (game == null) {
             throw new InvalidGameIdException("Game ID doesn't exist.");
         }
-        return games.get(gameID);
+        return game;
+    }
+
+    // Lookups returning null if absent, IDs that can't be
+    // encoded are never present
+    private Customer findCustomer(String customerID) {
+        return customers.get(CompactId.encodeCustomerId(customerID));
+    }
+
+    private ArcadeGame findArcadeGame(String gameID) {
+        return catalogue.get(CompactId.encodeGameId(gameID));
     }
 
     // Processes a transaction between a customer and
     // Their selected game
     public boolean processTransaction(String customerID, String gameID, boolean peak)
             throws InvalidCustomerException, InvalidGameIdException, AgeLimitException, InsufficientBalanceException {
+        TransactionResult result = tryProcessTransaction(customerID, gameID, peak);
+        if (!result.isSuccess()) {
+            throw result.toException();
+        }
+        return true;
+    }
+
+    // Exception free version of processTransaction, reports
+    // declined plays as a result code so they cost the same
+    // as successful ones
+    public TransactionResult tryProcessTransaction(String customerID, String gameID, boolean peak) {
+        return tryProcessTransaction(CompactId.encodeCustomerId(customerID), CompactId.encodeGameId(gameID), peak);
+    }
+
+    // As above with IDs already encoded by CompactId, so
+    // callers parsing raw input never build ID Strings
+    public TransactionResult tryProcessTransaction(long customerKey, long gameKey, boolean peak) {
+        return tryProcessTransaction(customerKey, gameKey, null, peak);
+    }
+
+    // As above with the game already found, which needn't be
+    // one of this arcade's, so a ShardedArcade can charge a
+    // customer at their home shard for any shard's game,
+    // a null game is looked up here
+    TransactionResult tryProcessTransaction(long customerKey, long gameKey, ArcadeGame game, boolean peak) {
+        ArcadeMetrics metrics = this.metrics;
+        if (metrics == null) {
+            return applyTransaction(customerKey, gameKey, game, peak, null);
+        }
+        long start = System.nanoTime();
+        TransactionResult result = applyTransaction(customerKey, gameKey, game, peak, metrics);
+        metrics.recordLatency(System.nanoTime() - start);
+        return result;
+    }
+
+    private TransactionResult applyTransaction(long customerKey, long gameKey, ArcadeGame game, boolean peak,
+                                               ArcadeMetrics metrics) {
         // Gets customer and game for transaction
-        Customer customer = getCustomer(customerID);
-        ArcadeGame game = getArcadeGame(gameID);
+        Customer customer = customers.get(customerKey);
+        if (customer == null) {
+            game = null;
+        } else if (game == null) {
+            game = catalogue.get(gameKey);
+        }
+        TransactionResult result;
+        if (customer == null) {
+            result = TransactionResult.INVALID_CUSTOMER;
+        } else if (game == null) {
+            result = TransactionResult.INVALID_GAME;
+        } else {
+            // charges account, the charge itself is atomic
+            // per customer so independent plays never contend
+            int amount = customer.tryChargeAccount(game, peak);
+            if (amount == Customer.DECLINED_AGE_LIMIT) {
+                result = TransactionResult.AGE_LIMIT;
+            } else if (amount == Customer.DECLINED_INSUFFICIENT_BALANCE) {
+                result = TransactionResult.INSUFFICIENT_BALANCE;
+            } else {
+                // adding cost to revenue, the ledger first so it
+                // still balances if journaling fails
+                RevenueLedger ledger = this.ledger;
+                if (ledger != null) {
+                    ledger.postCharge(customerKey, gameKey, amount);
+                }
+                revenue.add(amount);
+                boolean journaled = journalCharge(customer.getId(), amount);
+                if (metrics != null) {
+                    metrics.recordPlay(gameKey, game, customer.getDiscountType(), peak, amount);
+                }
+                PlayAnalytics analytics = this.analytics;
+                if (analytics != null) {
+                    analytics.recordPlay(gameKey, game, customer.getDiscountType(), peak, amount);
+                }
+                // Charged either way, the result says whether it's durable
+                return journaled ? TransactionResult.SUCCESS : TransactionResult.JOURNAL_FAILED;
+            }
+        }
+
+        if (metrics != null) {
+            metrics.recordDecline(result);
+        }
+        return result;
+    }
+
+    // Processes every play in the batch in order, IDs are all
+    // resolved in one pass then the charges are applied and
+    // their revenue is added once, returns the batch's result
+    // codes, one TransactionResult code per play
+    public byte[] processTransactions(TransactionBatch batch) {
+        int size = batch.size();
+        // The whole batch sees one catalogue
+        GameCatalogue catalogue = this.catalogue;
+        for (int i = 0; i < size; i++) {
+            batch.customers[i] = customers.get(batch.getCustomerKey(i));
+            batch.games[i] = catalogue.get(batch.getGameKey(i));
+        }
 
-        // if no errors thrown, charges account, adding
-        // cost to revenue
-        int amount = customer.chargeAccount(game, peak);
-        revenue += amount;
+        ArcadeMetrics metrics = this.metrics;
+        PlayAnalytics analytics = this.analytics;
+        RevenueLedger ledger = this.ledger;
+        // The whole batch counts as played at one time
+        long now = analytics == null ? 0 : analytics.now();
+        long postedAt = ledger == null ? 0 : ledger.now();
+        long batchRevenue = 0;
+        try {
+            for (int i = 0; i < size; i++) {
+                Customer customer = batch.customers[i];
+                ArcadeGame game = batch.games[i];
+                TransactionResult result;
+                if (customer == null) {
+                    result = TransactionResult.INVALID_CUSTOMER;
+                } else if (game == null) {
+                    result = TransactionResult.INVALID_GAME;
+                } else {
+                    int amount = customer.tryChargeAccount(game, batch.isPeak(i));
+                    if (amount == Customer.DECLINED_AGE_LIMIT) {
+                        result = TransactionResult.AGE_LIMIT;
+                    } else if (amount == Customer.DECLINED_INSUFFICIENT_BALANCE) {
+                        result = TransactionResult.INSUFFICIENT_BALANCE;
+                    } else {
+                        batchRevenue += amount;
+                        if (ledger != null) {
+                            ledger.postCharge(postedAt, batch.getCustomerKey(i), batch.getGameKey(i), amount);
+                        }
+                        result = journalCharge(customer.getId(), amount)
+                                ? TransactionResult.SUCCESS : TransactionResult.JOURNAL_FAILED;
+                        if (metrics != null) {
+                            metrics.recordPlay(batch.getGameKey(i), game, customer.getDiscountType(),
+                                    batch.isPeak(i), amount);
+                        }
+                        if (analytics != null) {
+                            analytics.recordPlay(now, batch.getGameKey(i), game, customer.getDiscountType(),
+                                    batch.isPeak(i), amount);
+                        }
+                    }
+                }
+
+                if (metrics != null && !result.isCharged()) {
+                    metrics.recordDecline(result);
+                }
+                batch.setResult(i, result);
+            }
+        } finally {
+            // Charges already made still count if the journal fails
+            revenue.add(batchRevenue);
+        }
+        return batch.results();
+    }
+
+    // Journals a charge already made, false if the journal
+    // failed, plays report that as JOURNAL_FAILED rather than
+    // throwing for a charge that did happen
+    private boolean journalCharge(String customerID, int amount) {
+        TransactionJournal journal = this.journal;
+        if (journal != null) {
+            try {
+                journal.recordCharge(customerID, amount);
+            } catch (IOException e) {
+                return false;
+            }
+        }
         return true;
     }
 
-    // Searches customers to find the highest balance
-    public Customer findRichestCustomer() {
-        // Checks for customer objects before looping
-        if (customers.isEmpty()) {
-            return null;
+    // Waits until every change this thread has made through
+    // the arcade is on disk in the journal, until then a crash
+    // loses it, so call this before acknowledging changes to
+    // anyone, returns at once with no journal attached
+    public void awaitJournal() throws IOException {
+        TransactionJournal journal = this.journal;
+        if (journal != null) {
+            journal.awaitDurable();
+        }
+    }
+
+    // Keeps balance ordered structures in step with customers
+    // Charges are journaled by processTransaction, which also
+    // knows they count towards revenue, so only funds added
+    // straight to the customer are journaled here
+    private void onBalanceChanged(Customer customer, int oldBalance, int newBalance) {
+        BalanceLeaderboard leaderboard = this.leaderboard;
+        if (leaderboard != null) {
+            leaderboard.update(customer);
         }
 
-        // Replaces customer with richest customer until it checks all customers
+        // Pence of this change funded by a student overdraft
+        ArcadeMetrics metrics = this.metrics;
+        if (metrics != null && newBalance < 0 && customer.getDiscountType() == DiscountType.STUDENT) {
+            int borrowed = -newBalance - Math.max(0, -oldBalance);
+            if (borrowed > 0) {
+                metrics.recordOverdraft(borrowed);
+            }
+        }
+
+        TransactionJournal journal = this.journal;
+        if (journal != null && newBalance > oldBalance) {
+            try {
+                journal.recordAddFunds(customer.getId(), newBalance - oldBalance);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Finds the customer with the highest balance
+    // null if there are no customers
+    public Customer findRichestCustomer() {
+        BalanceLeaderboard leaderboard = this.leaderboard;
+        if (leaderboard != null) {
+            return leaderboard.richest();
+        }
+        // Single scan, ties go to the higher ID as in the leaderboard
         Customer richest = null;
         for (Customer customer : customers.values()) {
-            if (richest == null || customer.getBalance() > richest.getBalance()) {
+            if (richest == null || customer.getBalance() > richest.getBalance()
+                    || (customer.getBalance() == richest.getBalance()
+                    && customer.getId().compareTo(richest.getId()) > 0)) {
                 richest = customer;
             }
         }
-
         return richest;
     }
 
-    // Finds the average price across all games
-    public int getMedianGamePrice() {
-        if (games.isEmpty()) {
-            // Checks for games objects before looping
-            return 0;
-        }
+    // Up to k customers with the highest balances, richest first
+    public List<Customer> getRichestCustomers(int k) {
+        return rankings().top(k);
+    }
 
-        // Place all prices into list
-        List<Integer> priceList = new ArrayList<>();
-        for (ArcadeGame game : games.values()) {
-            priceList.add(game.getPrice());
+    // Up to k customers with the lowest balances, poorest first
+    public List<Customer> getPoorestCustomers(int k) {
+        return rankings().bottom(k);
+    }
+
+    // Customer's position by balance, 1 is the richest
+    public int getCustomerRank(String customerID) throws InvalidCustomerException {
+        int rank = rankings().rank(customerID);
+        if (rank < 0) {
+            throw new InvalidCustomerException("Customer ID doesn't exist.");
         }
-        Collections.sort(priceList);
+        return rank;
+    }
 
-        // Finding the average (middle values)
-        if (priceList.size() % 2 == 1) {
-            // if theres an exact value (odd size)
-            return priceList.get(priceList.size() / 2);
-        } else {
-            // if theres 2 middle values (even size)
-            int lowerMid = priceList.get((priceList.size() / 2) - 1);
-            int upperMid = priceList.get(priceList.size() / 2);
-            return (lowerMid + upperMid) / 2;
+    // Live leaderboard, or while it's off a one off ranking
+    // of every customer, O(n log n)
+    private BalanceLeaderboard rankings() {
+        BalanceLeaderboard leaderboard = this.leaderboard;
+        if (leaderboard != null) {
+            return leaderboard;
+        }
+        BalanceLeaderboard ranking = new BalanceLeaderboard();
+        for (Customer customer : customers.values()) {
+            ranking.add(customer);
         }
+        return ranking;
+    }
+
+    // Finds the average price across all games
+    // answered from the price index, 0 if there are no games
+    public int getMedianGamePrice() {
+        return catalogue.queryPrices(PriceIndex::median);
+    }
+
+    // Price that the given fraction of games are at or below
+    public int getGamePricePercentile(double fraction) {
+        return catalogue.queryPrices(prices -> prices.percentile(fraction));
+    }
 
+    // Number of games priced between min and max pence inclusive
+    public int countGamesInPriceRange(int minPrice, int maxPrice) {
+        return catalogue.queryPrices(prices -> prices.countInRange(minPrice, maxPrice));
+    }
+
+    // Sorted copy of every game price, for aggregating
+    // statistics across arcades
+    int[] getGamePrices() {
+        return catalogue.queryPrices(PriceIndex::toArray);
+    }
+
+    // Every game and customer, used by snapshots
+    Collection<ArcadeGame> getAllArcadeGames() {
+        return catalogue.getGames();
+    }
+
+    Collection<Customer> getAllCustomers() {
+        return Collections.unmodifiableCollection(customers.values());
+    }
+
+    // Adds revenue restored from a snapshot or journal
+    void restoreRevenue(long amount) {
+        revenue.add(amount);
+        RevenueLedger ledger = this.ledger;
+        if (ledger != null) {
+            ledger.postUnattributed(amount);
+        }
     }
 
     // Prints out generic liability statement
@@ -160,23 +532,26 @@ public class Arcade {
     // Returns the number of cabinet games,
     // active games and virtual games
     public int[] countArcadeGames() {
-        // Counters
-        int virtualrealityCounter = 0;
-        int activeCounter = 0;
-        int cabinetCounter = 0;
-
-        // Checks which game, adds 1 to counter
-        for (ArcadeGame game : games.values()) {
-            if (game instanceof VirtualRealityGame) {
-                virtualrealityCounter += 1;
-            } else if (game instanceof ActiveGame) {
-                activeCounter += 1;
-            } else if (game instanceof CabinetGame) {
-                cabinetCounter += 1;
-            }
-        }
+        return catalogue.queryTypes(typeIndex -> new int[]{
+                typeIndex.count(GameType.CABINET),
+                typeIndex.count(GameType.ACTIVE),
+                typeIndex.count(GameType.VIRTUAL_REALITY)
+        });
+    }
+
+    // All games of one type
+    public List<ArcadeGame> getArcadeGames(GameType gameType) {
+        return catalogue.queryTypes(typeIndex -> typeIndex.getGames(gameType));
+    }
+
+    // All virtual reality games using the given equipment
+    public List<VirtualRealityGame> getArcadeGames(EquipmentType equipmentType) {
+        return catalogue.queryTypes(typeIndex -> typeIndex.getGames(equipmentType));
+    }
 
-        return new int[]{cabinetCounter, activeCounter, virtualrealityCounter};
+    // All cabinet games with or without a reward payout
+    public List<CabinetGame> getCabinetGames(boolean hasRewardPayout) {
+        return catalogue.queryTypes(typeIndex -> typeIndex.getCabinetGames(hasRewardPayout));
     }
 
 
@@ -186,15 +561,143 @@ public class Arcade {
         return name;
     }
 
+    // Kept for existing int callers, throws ArithmeticException
+    // rather than wrapping once revenue passes the int range
+    @Deprecated
     public int getRevenue() {
-        return revenue;
+        return Math.toIntExact(revenue.sum());
+    }
+
+    // Revenue in pence, a long so a busy estate never wraps
+    public long getTotalRevenue() {
+        return revenue.sum();
+    }
+
+    // Current catalogue, a consistent view of every game
+    public GameCatalogue getGameCatalogue() {
+        return catalogue;
+    }
+
+    // Always true, every arcade can be shared between threads
+    @Deprecated
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    // Starts journaling changes, attach after recovery
+    // so replayed records aren't journaled twice
+    public void setJournal(TransactionJournal journal) {
+        this.journal = journal;
+    }
+
+    // Attached journal, null if none, snapshots record its
+    // checkpoint
+    TransactionJournal getJournal() {
+        return journal;
+    }
+
+    // Starts ranking customers by balance, returns the live
+    // leaderboard, the same one if it's already on
+    public synchronized BalanceLeaderboard enableLeaderboard() {
+        if (leaderboard == null) {
+            BalanceLeaderboard created = new BalanceLeaderboard();
+            // Published first so customers added meanwhile are
+            // added by addCustomer if not by this loop
+            leaderboard = created;
+            for (Customer customer : customers.values()) {
+                created.add(customer);
+            }
+        }
+        return leaderboard;
+    }
+
+    // Stops ranking, balance changes go back to a null check
+    public synchronized void disableLeaderboard() {
+        leaderboard = null;
+    }
+
+    // Live leaderboard, null while it's off
+    public BalanceLeaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    // Starts counting metrics, returns the live metrics,
+    // the same ones if they're already on
+    public synchronized ArcadeMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new ArcadeMetrics();
+        }
+        return metrics;
+    }
+
+    // Stops counting, plays go back to a single null check
+    public synchronized void disableMetrics() {
+        metrics = null;
+    }
+
+    // Live metrics, null while they're off
+    public ArcadeMetrics getMetrics() {
+        return metrics;
+    }
+
+    // Starts rolling window analytics on the system clock,
+    // returns the live analytics, the same ones if already on
+    public PlayAnalytics enableAnalytics() {
+        return enableAnalytics(System::currentTimeMillis);
+    }
+
+    // As above with the clock analytics are bucketed by,
+    // ignored if analytics are already on
+    public synchronized PlayAnalytics enableAnalytics(LongSupplier clock) {
+        if (analytics == null) {
+            analytics = new PlayAnalytics(clock);
+        }
+        return analytics;
+    }
+
+    public synchronized void disableAnalytics() {
+        analytics = null;
+    }
+
+    // Live analytics, null while they're off
+    public PlayAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    // Starts posting revenue to a ledger on the system clock,
+    // revenue so far is its unattributed opening balance,
+    // returns the live ledger, the same one if already on
+    public RevenueLedger enableLedger() {
+        return enableLedger(System::currentTimeMillis);
+    }
+
+    // As above with the clock days are taken from, enable it
+    // before plays start so the opening balance is exact
+    public synchronized RevenueLedger enableLedger(LongSupplier clock) {
+        if (ledger == null) {
+            ledger = new RevenueLedger(clock, revenue.sum());
+        }
+        return ledger;
+    }
+
+    // Live ledger, null while it's off
+    public RevenueLedger getLedger() {
+        return ledger;
+    }
+
+    // Checks the ledger's subtotals against revenue, null if
+    // the ledger is off
+    public RevenueLedger.Reconciliation reconcileLedger() {
+        RevenueLedger ledger = this.ledger;
+        return ledger == null ? null : ledger.reconcile(revenue.sum());
     }
 
     @Override
     public String toString() {
-        return String.format(
-                "Arcade name = %s, Revenue = £%.2f",
-                name, revenue / 100.00);
+        StringBuilder text = new StringBuilder(64)
+                .append("Arcade name = ").append(name)
+                .append(", Revenue = ");
+        return Money.appendMoney(text, getTotalRevenue()).toString();
     }
 
     // Test harness
@@ -331,9 +834,264 @@ public class Arcade {
         // Revenue check
         try {
             int[] counts = arcade.countArcadeGames();
-            System.out.println("Test 10 passed: current revenue = " + arcade.getRevenue());
+            System.out.println("Test 10 passed: current revenue = " + arcade.getTotalRevenue());
         } catch (Exception e) {
             System.err.println("Task 10 failed " + e.getMessage());
         }
+
+        // Concurrent plays, 4 tills sharing one customer
+        // Expected outcome: exactly 10 plays succeed, balance = 0
+        try {
+            Arcade shared = new Arcade("GameCo Concurrent");
+            shared.addArcadeGame(new CabinetGame("CB12345678", "Test cabinet game 6", 100, true));
+            Customer c8 = new Customer("Test08", "hii", 22, DiscountType.NONE, 1000);
+            shared.addCustomer(c8);
+
+            Thread[] tills = new Thread[4];
+            for (int i = 0; i < tills.length; i++) {
+                tills[i] = new Thread(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        try {
+                            shared.processTransaction("Test08", "CB12345678", true);
+                        } catch (InsufficientBalanceException ignored) {
+                            // Expected once the balance runs out
+                        }
+                    }
+                });
+                tills[i].start();
+            }
+            for (Thread till : tills) {
+                till.join();
+            }
+
+            if (c8.getBalance() == 0 && shared.getTotalRevenue() == 1000) {
+                System.out.println("Test 11 passed: balance = " + c8.getBalance() + ", revenue = " + shared.getTotalRevenue());
+            } else {
+                System.err.println("Test 11 failed: balance = " + c8.getBalance() + ", revenue = " + shared.getTotalRevenue());
+            }
+        } catch (Exception e) {
+            System.err.println("Test 11 failed " + e.getMessage());
+        }
+
+        // Result codes, no exceptions thrown
+        // Expected outcome: INVALID_CUSTOMER, INVALID_GAME, INSUFFICIENT_BALANCE
+        TransactionResult r1 = arcade.tryProcessTransaction("Nobody", "CB66666666", true);
+        TransactionResult r2 = arcade.tryProcessTransaction("Test05", "CB00000000", true);
+        TransactionResult r3 = arcade.tryProcessTransaction("Test02", "CB66666666", true);
+        if (r1 == TransactionResult.INVALID_CUSTOMER && r2 == TransactionResult.INVALID_GAME
+                && r3 == TransactionResult.INSUFFICIENT_BALANCE) {
+            System.out.println("Test 12 passed: " + r1 + ", " + r2 + ", " + r3);
+        } else {
+            System.err.println("Test 12 failed: " + r1 + ", " + r2 + ", " + r3);
+        }
+
+        // Batched plays, same outcomes as one at a time
+        // Expected outcome: 2 successes, revenue up by 2 plays
+        TransactionBatch batch = new TransactionBatch(2);
+        try {
+            arcade.addCustomer(new Customer("Test09", "hii", 22, DiscountType.NONE, 1000));
+        } catch (InvalidCustomerException e) {
+            System.err.println("Test 13 failed " + e.getMessage());
+        }
+        long revenueBefore = arcade.getTotalRevenue();
+        batch.add("Test09", "CB66666666", true);
+        batch.add("Nobody", "CB66666666", true);
+        batch.add("Test09", "CB00000000", true);
+        batch.add("Test09", "CB66666666", true);
+        batch.add("Test09", "CB66666666", true);
+        arcade.processTransactions(batch);
+        if (batch.countSuccesses() == 2 && batch.getResult(1) == TransactionResult.INVALID_CUSTOMER
+                && batch.getResult(2) == TransactionResult.INVALID_GAME
+                && batch.getResult(4) == TransactionResult.INSUFFICIENT_BALANCE
+                && arcade.getTotalRevenue() - revenueBefore == 888) {
+            System.out.println("Test 13 passed: revenue = " + arcade.getTotalRevenue());
+        } else {
+            System.err.println("Test 13 failed: revenue = " + arcade.getTotalRevenue());
+        }
+
+        // Metrics, one play, one decline and an overdraft
+        // Expected outcome: 1 play, 1 age decline, £1.00 borrowed
+        try {
+            Arcade measured = new Arcade("GameCo Metrics");
+            ArcadeMetrics metrics = measured.enableMetrics();
+            measured.addArcadeGame(new ActiveGame("AX12345678", "Test active game", 300, 18));
+            measured.addCustomer(new Customer("Test10", "hii", 20, DiscountType.STUDENT, 200));
+            measured.addCustomer(new Customer("Test11", "hii", 12, DiscountType.NONE, 1000));
+            measured.tryProcessTransaction("Test10", "AX12345678", true);
+            measured.tryProcessTransaction("Test11", "AX12345678", true);
+
+            ArcadeMetrics.Snapshot snapshot = metrics.snapshot();
+            if (snapshot.getTotalPlays() == 1 && snapshot.getPlaysByGame().get("AX12345678") == 1
+                    && snapshot.getDeclines().get(TransactionResult.AGE_LIMIT) == 1
+                    && snapshot.getOverdraftPence() == 100 && snapshot.getTimedTransactions() == 2) {
+                System.out.println("Test 14 passed:\n" + snapshot);
+            } else {
+                System.err.println("Test 14 failed:\n" + snapshot);
+            }
+        } catch (Exception e) {
+            System.err.println("Test 14 failed " + e.getMessage());
+        }
+
+        // Analytics fed by single and batched plays, then
+        // aged out of the minute window
+        // Expected outcome: 3 plays in the minute, then 0
+        try {
+            long[] time = {0};
+            Arcade tracked = new Arcade("GameCo Analytics");
+            PlayAnalytics analytics = tracked.enableAnalytics(() -> time[0]);
+            tracked.addArcadeGame(new CabinetGame("CB77777777", "Test cabinet game", 100, false));
+            tracked.addCustomer(new Customer("Test12", "hii", 20, DiscountType.NONE, 1000));
+            tracked.tryProcessTransaction("Test12", "CB77777777", true);
+            TransactionBatch plays = new TransactionBatch(2);
+            plays.add("Test12", "CB77777777", true);
+            plays.add("Test12", "CB77777777", true);
+            tracked.processTransactions(plays);
+
+            long minute = analytics.getGamePlays("CB77777777", PlayAnalytics.Window.MINUTE);
+            time[0] = 120_000;
+            if (minute == 3 && analytics.getPlays(PlayAnalytics.Window.MINUTE) == 0
+                    && analytics.getRevenue(PlayAnalytics.Window.HOUR) == 300) {
+                System.out.println("Test 15 passed: " + minute);
+            } else {
+                System.err.println("Test 15 failed: " + minute);
+            }
+        } catch (Exception e) {
+            System.err.println("Test 15 failed " + e.getMessage());
+        }
+
+        // Ledger started after some revenue, then fed by
+        // single and batched plays
+        // Expected outcome: balanced, £1.00 unattributed
+        try {
+            Arcade ledgered = new Arcade("GameCo Ledger");
+            ledgered.addArcadeGame(new CabinetGame("CB88888888", "Test cabinet game", 100, false));
+            ledgered.addCustomer(new Customer("Test13", "hii", 20, DiscountType.NONE, 1000));
+            ledgered.tryProcessTransaction("Test13", "CB88888888", true);
+            RevenueLedger ledger = ledgered.enableLedger();
+            ledgered.tryProcessTransaction("Test13", "CB88888888", true);
+            TransactionBatch plays = new TransactionBatch(2);
+            plays.add("Test13", "CB88888888", true);
+            plays.add("Test13", "CB88888888", true);
+            ledgered.processTransactions(plays);
+
+            RevenueLedger.Reconciliation reconciliation = ledgered.reconcileLedger();
+            if (reconciliation.isBalanced() && ledger.getUnattributed() == 100
+                    && ledger.getCustomerRevenue("Test13") == 300 && reconciliation.getHeadline() == 400) {
+                System.out.println("Test 16 passed:\n" + reconciliation);
+            } else {
+                System.err.println("Test 16 failed:\n" + reconciliation);
+            }
+        } catch (Exception e) {
+            System.err.println("Test 16 failed " + e.getMessage());
+        }
+
+        // Repricing by replacing the catalogue while a till
+        // keeps playing, every play sees the old or new game
+        // Expected outcome: no play fails, new price in use
+        try {
+            Arcade reloaded = new Arcade("GameCo Reload");
+            reloaded.addArcadeGame(new CabinetGame("CB99999999", "Test cabinet game", 100, false));
+            reloaded.addCustomer(new Customer("Test14", "hii", 20, DiscountType.NONE, Integer.MAX_VALUE));
+            AtomicBoolean stop = new AtomicBoolean();
+            long[] plays = {0, 0};
+            Thread till = new Thread(() -> {
+                while (!stop.get()) {
+                    if (reloaded.tryProcessTransaction("Test14", "CB99999999", true).isSuccess()) {
+                        plays[0]++;
+                    } else {
+                        plays[1]++;
+                    }
+                }
+            });
+            till.start();
+            for (int price = 101; price <= 200; price++) {
+                reloaded.replaceGames(new GameCatalogue.Builder()
+                        .add(new CabinetGame("CB99999999", "Test cabinet game", price, false))
+                        .build());
+                Thread.sleep(1);
+            }
+            stop.set(true);
+            till.join();
+
+            int price = reloaded.getArcadeGame("CB99999999").getPrice();
+            if (plays[1] == 0 && plays[0] > 0 && price == 200 && reloaded.getMedianGamePrice() == 200) {
+                System.out.println("Test 17 passed: " + plays[0] + " plays, price = " + price);
+            } else {
+                System.err.println("Test 17 failed: " + plays[1] + " failed plays, price = " + price);
+            }
+        } catch (Exception e) {
+            System.err.println("Test 17 failed " + e.getMessage());
+        }
+
+        // Leaderboard turned on after plays, then kept up to
+        // date, agrees with the scan used while it's off
+        // Expected outcome: Test05 richest both ways, rank 1
+        try {
+            Customer scanned = arcade.findRichestCustomer();
+            arcade.enableLeaderboard();
+            arcade.getCustomer("Test05").addFunds(10_000);
+            Customer ranked = arcade.findRichestCustomer();
+            arcade.disableLeaderboard();
+            if (ranked == arcade.findRichestCustomer() && ranked.getId().equals("Test05")
+                    && arcade.getCustomerRank("Test05") == 1 && scanned != null) {
+                System.out.println("Test 18 passed: " + ranked);
+            } else {
+                System.err.println("Test 18 failed: " + ranked);
+            }
+        } catch (Exception e) {
+            System.err.println("Test 18 failed " + e.getMessage());
+        }
+
+        // Adding a game publishes a new catalogue, one already
+        // read is left as it was
+        // Expected outcome: held catalogue unchanged, new game
+        // counted in the live one
+        try {
+            GameCatalogue held = arcade.getGameCatalogue();
+            int heldSize = held.size();
+            arcade.addArcadeGame(new CabinetGame("CB43434343", "Test cabinet game 5", 300, true));
+            GameCatalogue live = arcade.getGameCatalogue();
+            if (live != held && held.size() == heldSize && held.find("CB43434343") == null
+                    && live.size() == heldSize + 1 && live.queryPrices(PriceIndex::size) == heldSize + 1
+                    && arcade.getArcadeGame("CB43434343").getPrice() == 300) {
+                System.out.println("Test 19 passed: " + heldSize + " games held, " + live.size() + " live");
+            } else {
+                System.err.println("Test 19 failed: " + heldSize + " games held, " + live.size() + " live");
+            }
+        } catch (Exception e) {
+            System.err.println("Test 19 failed " + e.getMessage());
+        }
+
+        // A failed journal doesn't throw from a play, charges
+        // already made are reported as JOURNAL_FAILED
+        // Expected outcome: every row has a result, 3 charged
+        try {
+            Path file = Files.createTempFile("arcade", ".journal");
+            Arcade journaled = new Arcade("GameCo Journal");
+            journaled.addArcadeGame(new CabinetGame("CB99999999", "Test cabinet game", 100, false));
+            journaled.addCustomer(new Customer("Test15", "hii", 20, DiscountType.NONE, 1000));
+            TransactionJournal journal = TransactionJournal.open(file, 1, 1000);
+            journaled.setJournal(journal);
+            // A closed journal refuses records like a failed one
+            journal.close();
+            TransactionResult single = journaled.tryProcessTransaction("Test15", "CB99999999", true);
+            TransactionBatch failing = new TransactionBatch(3);
+            failing.add("Test15", "CB99999999", true);
+            failing.add("Nobody", "CB99999999", true);
+            failing.add("Test15", "CB99999999", true);
+            journaled.processTransactions(failing);
+            Files.delete(file);
+            if (single == TransactionResult.JOURNAL_FAILED
+                    && failing.getResult(0) == TransactionResult.JOURNAL_FAILED
+                    && failing.getResult(1) == TransactionResult.INVALID_CUSTOMER
+                    && failing.getResult(2) == TransactionResult.JOURNAL_FAILED
+                    && journaled.getCustomer("Test15").getBalance() == 700 && journaled.getTotalRevenue() == 300) {
+                System.out.println("Test 20 passed: " + single + ", revenue = " + journaled.getTotalRevenue());
+            } else {
+                System.err.println("Test 20 failed: " + single + ", revenue = " + journaled.getTotalRevenue());
+            }
+        } catch (Exception e) {
+            System.err.println("Test 20 failed " + e);
+        }
     }
 }
\ No newline at end of file
@@ -12,6 +12,10 @@
  This class is extended by CabinetGame, ActiveGame and further down
  VirtualRealityGame, which overwrite the calculatePrice and add
  further conditions to validateId
+ Each game precomputes its final charge for every
+ peak / off-peak and DiscountType pair, so charging a
+ customer is an int array lookup rather than floating
+ point arithmetic on every play
 
  History: 04/05/2025 v 1.00
 
@@ -19,7 +23,10 @@
 package arcade;
 
 //Imports
+import customer.DiscountType;
 import exceptions.InvalidGameIdException;
+import money.Money;
+import validation.IdValidator;
 
 
 public abstract class ArcadeGame {
@@ -28,9 +35,17 @@ public abstract class ArcadeGame {
     private final String id;
     private final String name;
     private final int price;
+    // Final charge indexed by peak and DiscountType ordinal
+    // built on first use, as calculatePrice depends on
+    // subclass fields not yet set during construction
+    private volatile int[] chargeTable;
+
+    private static final DiscountType[] DISCOUNT_TYPES = DiscountType.values();
 
 
     // Constructor //
+    // validateId is overridden down the hierarchy, calling it
+    // once here runs every subclass condition exactly once
     public ArcadeGame(String id, String name, int price) {
         validateId(id);
         this.id = id;
@@ -41,7 +56,7 @@ public abstract class ArcadeGame {
     // Functions //
     // Protected method for validating game id
     protected void validateId(String id) throws InvalidGameIdException{
-        if (id == null || id.length() != 10 || !id.matches("[a-zA-Z0-9]{10}")){
+        if (!IdValidator.isValidGameId(id)){
             // Default Exception message for string:
             // Alphanumeric 10 characters
             throw new InvalidGameIdException("Invalid game ID: \nMust be 10 alphanumeric characters.");
@@ -52,6 +67,34 @@ public abstract class ArcadeGame {
     // Calculate price based on peak or off peak hours
     public abstract int calculatePrice(boolean peak);
 
+    // Final pence charged to a customer with the given
+    // discount, identical to calculatePrice followed by the
+    // customer's off-peak discount
+    public final int getCharge(boolean peak, DiscountType discountType) {
+        int[] table = chargeTable;
+        if (table == null) {
+            table = prepareChargeTable();
+        }
+        return table[(peak ? DISCOUNT_TYPES.length : 0) + discountType.ordinal()];
+    }
+
+    // Builds the charge table, called by Arcade when the
+    // game is registered so plays never pay for it
+    int[] prepareChargeTable() {
+        int[] table = new int[DISCOUNT_TYPES.length * 2];
+        for (DiscountType discountType : DISCOUNT_TYPES) {
+            // Off-peak, additional discount applies
+            table[discountType.ordinal()] = discountType.applyOffPeakDiscount(calculatePrice(false));
+            // Peak, full game price
+            table[DISCOUNT_TYPES.length + discountType.ordinal()] = calculatePrice(true);
+        }
+        chargeTable = table;
+        return table;
+    }
+
+    // Implemented by subclasses, the concrete kind of game
+    public abstract GameType getGameType();
+
     // Accessor Methods //
     public String getId(){
         return id;
@@ -66,16 +109,17 @@ public abstract class ArcadeGame {
 
     // Reformat price for output
     public static String penceToPound(int pence){
-        return String.format("£%.2f", pence/100.00);
+        return Money.format(pence);
     }
 
     // Overrides the toString method
     // Providing a formatted ArcadeGame representation
     @Override
     public String toString() {
-        return String.format(
-                "ID = %s, Name = %s, Price = %s",
-                id, name, penceToPound(price)
-        );
+        StringBuilder text = new StringBuilder(64)
+                .append("ID = ").append(id)
+                .append(", Name = ").append(name)
+                .append(", Price = ");
+        return Money.appendMoney(text, price).toString();
     }
 }
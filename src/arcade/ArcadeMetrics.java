@@ -0,0 +1,256 @@
+/*************************************************************************
+
+ File: ArcadeMetrics.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Live counters for an Arcade, turned on with
+ Arcade.enableMetrics, covering:
+ plays per game and per GameType
+ declined plays by reason
+ revenue by peak / off-peak and by DiscountType
+ STUDENT overdraft use, from the customers' balance hook
+ processTransaction latency percentiles
+ snapshot() copies everything into an immutable Snapshot,
+ whose toString is the text report, startReporting prints
+ that report periodically
+ While metrics are off the arcade holds null and each play
+ costs one extra null check
+
+
+ Data Structure reasoning:
+ Counters are LongAdders, striped per thread so till
+ threads recording the same counter don't contend, enum
+ keyed counters are arrays indexed by ordinal and per game
+ counters are a LongKeyMap keyed by CompactId, so
+ recording a play never allocates once a game has a counter
+ Latency goes into a log linear LatencyHistogram
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import customer.DiscountType;
+import metrics.LatencyHistogram;
+import metrics.MetricsReporter;
+import money.Money;
+import validation.CompactId;
+import validation.IdValidator;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ArcadeMetrics {
+
+    // Member Variables //
+    private final LongKeyMap<LongAdder> playsByGame;
+    private final LongAdder[] playsByType;
+    private final LongAdder[] declines;
+    private final LongAdder peakRevenue;
+    private final LongAdder offPeakRevenue;
+    private final LongAdder[] revenueByDiscount;
+    private final LongAdder overdraftCharges;
+    private final LongAdder overdraftPence;
+    private final LatencyHistogram latency;
+
+    // Constructor //
+    ArcadeMetrics() {
+        this.playsByGame = new LongKeyMap<>();
+        this.playsByType = adders(GameType.values().length);
+        this.declines = adders(TransactionResult.values().length);
+        this.peakRevenue = new LongAdder();
+        this.offPeakRevenue = new LongAdder();
+        this.revenueByDiscount = adders(DiscountType.values().length);
+        this.overdraftCharges = new LongAdder();
+        this.overdraftPence = new LongAdder();
+        this.latency = new LatencyHistogram();
+    }
+
+    // Functions //
+
+    // --- RECORDING --- //
+
+    // Successful play of game, charged amount pence
+    void recordPlay(long gameKey, ArcadeGame game, DiscountType discountType, boolean peak, int amount) {
+        LongAdder gamePlays = playsByGame.get(gameKey);
+        if (gamePlays == null) {
+            LongAdder created = new LongAdder();
+            LongAdder existing = playsByGame.putIfAbsent(gameKey, created);
+            gamePlays = existing != null ? existing : created;
+        }
+        gamePlays.increment();
+        playsByType[game.getGameType().ordinal()].increment();
+        (peak ? peakRevenue : offPeakRevenue).add(amount);
+        revenueByDiscount[discountType.ordinal()].add(amount);
+    }
+
+    void recordDecline(TransactionResult result) {
+        declines[result.ordinal()].increment();
+    }
+
+    // A STUDENT charge that took borrowed pence of overdraft
+    void recordOverdraft(int borrowed) {
+        overdraftCharges.increment();
+        overdraftPence.add(borrowed);
+    }
+
+    void recordLatency(long nanos) {
+        latency.record(nanos);
+    }
+
+    // --- REPORTING --- //
+
+    // Copies every counter, counters keep running meanwhile
+    // so a snapshot taken during plays may be a few plays
+    // out between totals
+    public Snapshot snapshot() {
+        Map<String, Long> gamePlays = new TreeMap<>();
+        playsByGame.forEach((gameKey, plays) ->
+                gamePlays.put(CompactId.decode(gameKey, IdValidator.GAME_ID_LENGTH), plays.sum()));
+
+        Map<GameType, Long> typePlays = new EnumMap<>(GameType.class);
+        for (GameType gameType : GameType.values()) {
+            typePlays.put(gameType, playsByType[gameType.ordinal()].sum());
+        }
+
+        Map<TransactionResult, Long> declineCounts = new EnumMap<>(TransactionResult.class);
+        for (TransactionResult result : TransactionResult.values()) {
+            if (!result.isSuccess()) {
+                declineCounts.put(result, declines[result.ordinal()].sum());
+            }
+        }
+
+        Map<DiscountType, Long> discountRevenue = new EnumMap<>(DiscountType.class);
+        for (DiscountType discountType : DiscountType.values()) {
+            discountRevenue.put(discountType, revenueByDiscount[discountType.ordinal()].sum());
+        }
+
+        long[] percentiles = latency.percentiles(0.5, 0.9, 0.99, 0.999);
+        return new Snapshot(gamePlays, typePlays, declineCounts, peakRevenue.sum(), offPeakRevenue.sum(),
+                discountRevenue, overdraftCharges.sum(), overdraftPence.sum(), latency.count(),
+                percentiles, latency.max());
+    }
+
+    // Prints a snapshot to out every periodMillis until the
+    // returned reporter is closed
+    public MetricsReporter startReporting(PrintStream out, long periodMillis) {
+        return new MetricsReporter(() -> snapshot().toString(), out, periodMillis);
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    // Point in time copy of the metrics
+    public static final class Snapshot {
+        private final Map<String, Long> playsByGame;
+        private final Map<GameType, Long> playsByType;
+        private final Map<TransactionResult, Long> declines;
+        private final long peakRevenue;
+        private final long offPeakRevenue;
+        private final Map<DiscountType, Long> revenueByDiscount;
+        private final long overdraftCharges;
+        private final long overdraftPence;
+        private final long timedTransactions;
+        // p50, p90, p99, p99.9 in nanoseconds
+        private final long[] latencyPercentiles;
+        private final long maxLatency;
+
+        private Snapshot(Map<String, Long> playsByGame, Map<GameType, Long> playsByType,
+                         Map<TransactionResult, Long> declines, long peakRevenue, long offPeakRevenue,
+                         Map<DiscountType, Long> revenueByDiscount, long overdraftCharges, long overdraftPence,
+                         long timedTransactions, long[] latencyPercentiles, long maxLatency) {
+            this.playsByGame = Collections.unmodifiableMap(playsByGame);
+            this.playsByType = Collections.unmodifiableMap(playsByType);
+            this.declines = Collections.unmodifiableMap(declines);
+            this.peakRevenue = peakRevenue;
+            this.offPeakRevenue = offPeakRevenue;
+            this.revenueByDiscount = Collections.unmodifiableMap(revenueByDiscount);
+            this.overdraftCharges = overdraftCharges;
+            this.overdraftPence = overdraftPence;
+            this.timedTransactions = timedTransactions;
+            this.latencyPercentiles = latencyPercentiles;
+            this.maxLatency = maxLatency;
+        }
+
+        // Accessors //
+
+        // Plays per game ID, sorted by ID
+        public Map<String, Long> getPlaysByGame() {return playsByGame;}
+
+        public Map<GameType, Long> getPlaysByType() {return playsByType;}
+
+        // Declined plays per reason
+        public Map<TransactionResult, Long> getDeclines() {return declines;}
+
+        public long getPeakRevenue() {return peakRevenue;}
+
+        public long getOffPeakRevenue() {return offPeakRevenue;}
+
+        public Map<DiscountType, Long> getRevenueByDiscount() {return revenueByDiscount;}
+
+        // STUDENT charges that went into the overdraft
+        public long getOverdraftCharges() {return overdraftCharges;}
+
+        // Pence borrowed from STUDENT overdrafts
+        public long getOverdraftPence() {return overdraftPence;}
+
+        public long getTimedTransactions() {return timedTransactions;}
+
+        public long getLatencyP50() {return latencyPercentiles[0];}
+
+        public long getLatencyP90() {return latencyPercentiles[1];}
+
+        public long getLatencyP99() {return latencyPercentiles[2];}
+
+        public long getLatencyP999() {return latencyPercentiles[3];}
+
+        public long getMaxLatency() {return maxLatency;}
+
+        public long getTotalPlays() {
+            long total = 0;
+            for (long plays : playsByType.values()) {
+                total += plays;
+            }
+            return total;
+        }
+
+        // Text report
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder("--- ARCADE METRICS ---\n");
+            report.append(String.format("Plays: total = %d, Cabinet = %d, Active = %d, VR = %d\n",
+                    getTotalPlays(), playsByType.get(GameType.CABINET), playsByType.get(GameType.ACTIVE),
+                    playsByType.get(GameType.VIRTUAL_REALITY)));
+            report.append(String.format("Declines: customer = %d, game = %d, age = %d, funds = %d\n",
+                    declines.get(TransactionResult.INVALID_CUSTOMER), declines.get(TransactionResult.INVALID_GAME),
+                    declines.get(TransactionResult.AGE_LIMIT), declines.get(TransactionResult.INSUFFICIENT_BALANCE)));
+            Money.appendMoney(report.append("Revenue: peak = "), peakRevenue);
+            Money.appendMoney(report.append(", off-peak = "), offPeakRevenue).append('\n');
+            Money.appendMoney(report.append("Revenue: NONE = "), revenueByDiscount.get(DiscountType.NONE));
+            Money.appendMoney(report.append(", STUDENT = "), revenueByDiscount.get(DiscountType.STUDENT));
+            Money.appendMoney(report.append(", STAFF = "), revenueByDiscount.get(DiscountType.STAFF)).append('\n');
+            report.append("Student overdraft: charges = ").append(overdraftCharges).append(", borrowed = ");
+            Money.appendMoney(report, overdraftPence).append('\n');
+            report.append(String.format("Latency ns: count = %d, p50 = %d, p90 = %d, p99 = %d, p99.9 = %d, max = %d\n",
+                    timedTransactions, latencyPercentiles[0], latencyPercentiles[1], latencyPercentiles[2],
+                    latencyPercentiles[3], maxLatency));
+            for (Map.Entry<String, Long> game : playsByGame.entrySet()) {
+                report.append(String.format("Game %s: plays = %d\n", game.getKey(), game.getValue()));
+            }
+            return report.toString();
+        }
+    }
+}
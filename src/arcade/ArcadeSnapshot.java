@@ -0,0 +1,410 @@
+/*************************************************************************
+
+ File: ArcadeSnapshot.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Writes the full state of an arcade (games, customers,
+ balances and revenue) to a compact binary snapshot and
+ restores it through a memory mapped read, so restarts
+ don't depend on re-parsing the text files
+ Throws IOException if the snapshot is an unknown version
+ or fails its checksum
+
+
+ File layout (all numbers big endian):
+ header    magic, version, arcade name (as a one entry name
+           column), revenue, journal checkpoint
+ games     count, then one column each for IDs (10 bytes),
+           type, price, minimum age, attribute (reward
+           payout or equipment ordinal) and names
+ customers count, then one column each for IDs (6 bytes),
+           age, discount ordinal, balance and names
+ trailer   CRC32 of everything before it
+ Name columns are an offset table followed by one
+ UTF-8 blob, so each column is a single contiguous read
+ The journal checkpoint is where the attached journal had
+ reached, recover replays only the records after it, take
+ snapshots while no transactions are in flight, the same as
+ an exact ledger reconciliation, so the two agree
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import customer.Customer;
+import customer.DiscountType;
+import validation.IdValidator;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public final class ArcadeSnapshot {
+
+    // Member Variables //
+    // "ARCS" in ASCII
+    private static final int MAGIC = 0x41524353;
+    private static final int VERSION = 3;
+
+    private static final GameType[] GAME_TYPES = GameType.values();
+    private static final EquipmentType[] EQUIPMENT_TYPES = EquipmentType.values();
+    private static final DiscountType[] DISCOUNT_TYPES = DiscountType.values();
+
+    // Constructor //
+    // Static utility, never instantiated
+    private ArcadeSnapshot() {
+    }
+
+    // Functions //
+
+    // --- WRITING --- //
+
+    // Writes the arcade to file, via a temporary file that is
+    // forced to disk before it's renamed over the old one, so
+    // a crash or power loss never leaves a half written snapshot
+    public static void write(Arcade arcade, Path file) throws IOException {
+        // Everything journaled so far is on disk and in this snapshot
+        TransactionJournal journal = arcade.getJournal();
+        long journalCheckpoint = journal == null ? 0 : journal.checkpoint();
+        List<ArcadeGame> games = new ArrayList<>(arcade.getAllArcadeGames());
+        List<Customer> customers = new ArrayList<>(arcade.getAllCustomers());
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream fileOut = Channels.newOutputStream(channel);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut, 1 << 16), checksum)) {
+            DataOutputStream out = new DataOutputStream(checked);
+
+            // Header
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeStrings(out, List.of(arcade.getName()));
+            out.writeLong(arcade.getTotalRevenue());
+            out.writeLong(journalCheckpoint);
+
+            // Game columns
+            out.writeInt(games.size());
+            for (ArcadeGame game : games) {
+                out.write(game.getId().getBytes(StandardCharsets.US_ASCII));
+            }
+            for (ArcadeGame game : games) {
+                out.writeByte(game.getGameType().ordinal());
+            }
+            for (ArcadeGame game : games) {
+                out.writeInt(game.getPrice());
+            }
+            for (ArcadeGame game : games) {
+                out.writeInt(game instanceof ActiveGame activeGame ? activeGame.getMinAge() : 0);
+            }
+            for (ArcadeGame game : games) {
+                if (game instanceof VirtualRealityGame virtualRealityGame) {
+                    out.writeByte(virtualRealityGame.getEquipmentType().ordinal());
+                } else if (game instanceof CabinetGame cabinetGame) {
+                    out.writeByte(cabinetGame.hasRewardPayout() ? 1 : 0);
+                } else {
+                    out.writeByte(0);
+                }
+            }
+            List<String> gameNames = new ArrayList<>(games.size());
+            for (ArcadeGame game : games) {
+                gameNames.add(game.getName());
+            }
+            writeStrings(out, gameNames);
+
+            // Customer columns
+            out.writeInt(customers.size());
+            for (Customer customer : customers) {
+                out.write(customer.getId().getBytes(StandardCharsets.US_ASCII));
+            }
+            for (Customer customer : customers) {
+                out.writeInt(customer.getAge());
+            }
+            for (Customer customer : customers) {
+                out.writeByte(customer.getDiscountType().ordinal());
+            }
+            for (Customer customer : customers) {
+                out.writeInt(customer.getBalance());
+            }
+            List<String> customerNames = new ArrayList<>(customers.size());
+            for (Customer customer : customers) {
+                customerNames.add(customer.getName());
+            }
+            writeStrings(out, customerNames);
+
+            // Trailer, not included in its own checksum
+            out.flush();
+            long crc = checksum.getValue();
+            new DataOutputStream(fileOut).writeLong(crc);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file.toAbsolutePath().getParent());
+    }
+
+    // Makes the rename itself durable, not every platform can
+    // open a directory, there the rename is left to the OS
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Directory sync unsupported here
+        }
+    }
+
+    // Offset table followed by a single UTF-8 blob
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        int offset = 0;
+        out.writeInt(offset);
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            offset += bytes.length;
+            out.writeInt(offset);
+        }
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+    }
+
+    // --- READING --- //
+
+    // Restores an arcade from a snapshot
+    public static Arcade read(Path file) throws IOException {
+        return read(file, new long[1]);
+    }
+
+    // Kept for existing callers, every arcade is now safe to
+    // share so concurrent is ignored
+    @Deprecated
+    public static Arcade read(Path file, boolean concurrent) throws IOException {
+        return read(file);
+    }
+
+    // Restores an arcade from a snapshot then replays the
+    // journal records written after it, attach the journal
+    // again once this returns
+    public static Arcade recover(Path file, Path journalFile) throws IOException {
+        long[] journalCheckpoint = new long[1];
+        Arcade arcade = read(file, journalCheckpoint);
+        TransactionJournal.replay(journalFile, arcade, journalCheckpoint[0]);
+        return arcade;
+    }
+
+    // Reads a snapshot, journalCheckpoint[0] is set to its
+    // journal checkpoint
+    private static Arcade read(Path file, long[] journalCheckpoint) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE || size < 16) {
+                throw new IOException("Snapshot has an invalid size: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            // Checksum over everything but the trailer
+            int bodyLength = (int) size - Long.BYTES;
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.slice(0, bodyLength));
+            if (checksum.getValue() != buffer.getLong(bodyLength)) {
+                throw new IOException("Snapshot checksum mismatch.");
+            }
+
+            // Header
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an arcade snapshot.");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version: " + version);
+            }
+            String name = readStrings(buffer, 1)[0];
+            Arcade arcade = new Arcade(name);
+            arcade.restoreRevenue(buffer.getLong());
+            journalCheckpoint[0] = buffer.getLong();
+
+            readGames(buffer, arcade);
+            readCustomers(buffer, arcade);
+            return arcade;
+        }
+    }
+
+    private static void readGames(MappedByteBuffer buffer, Arcade arcade) {
+        int count = buffer.getInt();
+        int ids = skip(buffer, count * IdValidator.GAME_ID_LENGTH);
+        int types = skip(buffer, count);
+        int prices = skip(buffer, count * Integer.BYTES);
+        int minAges = skip(buffer, count * Integer.BYTES);
+        int attributes = skip(buffer, count);
+        String[] names = readStrings(buffer, count);
+
+        // Built off to the side then published in one go
+        GameCatalogue.Builder catalogue = new GameCatalogue.Builder();
+        for (int i = 0; i < count; i++) {
+            String id = readAscii(buffer, ids + i * IdValidator.GAME_ID_LENGTH, IdValidator.GAME_ID_LENGTH);
+            int price = buffer.getInt(prices + i * Integer.BYTES);
+            int minAge = buffer.getInt(minAges + i * Integer.BYTES);
+            byte attribute = buffer.get(attributes + i);
+
+            ArcadeGame game = switch (GAME_TYPES[buffer.get(types + i)]) {
+                case CABINET -> new CabinetGame(id, names[i], price, attribute == 1);
+                case ACTIVE -> new ActiveGame(id, names[i], price, minAge);
+                case VIRTUAL_REALITY -> new VirtualRealityGame(id, names[i], price, minAge, EQUIPMENT_TYPES[attribute]);
+            };
+            catalogue.add(game);
+        }
+        arcade.replaceGames(catalogue.build());
+    }
+
+    private static void readCustomers(MappedByteBuffer buffer, Arcade arcade) {
+        int count = buffer.getInt();
+        int ids = skip(buffer, count * IdValidator.CUSTOMER_ID_LENGTH);
+        int ages = skip(buffer, count * Integer.BYTES);
+        int discounts = skip(buffer, count);
+        int balances = skip(buffer, count * Integer.BYTES);
+        String[] names = readStrings(buffer, count);
+
+        for (int i = 0; i < count; i++) {
+            String id = readAscii(buffer, ids + i * IdValidator.CUSTOMER_ID_LENGTH, IdValidator.CUSTOMER_ID_LENGTH);
+            Customer customer = new Customer(id, names[i], buffer.getInt(ages + i * Integer.BYTES),
+                    DISCOUNT_TYPES[buffer.get(discounts + i)]);
+            // Balance may be negative (student overdraft)
+            customer.restoreBalance(buffer.getInt(balances + i * Integer.BYTES));
+            arcade.addCustomer(customer);
+        }
+    }
+
+    // Returns the start of a column and moves past it
+    private static int skip(MappedByteBuffer buffer, int length) {
+        int start = buffer.position();
+        buffer.position(start + length);
+        return start;
+    }
+
+    private static String[] readStrings(MappedByteBuffer buffer, int count) {
+        int offsets = skip(buffer, (count + 1) * Integer.BYTES);
+        byte[] bytes = new byte[buffer.getInt(offsets + count * Integer.BYTES)];
+        buffer.get(bytes);
+
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            int start = buffer.getInt(offsets + i * Integer.BYTES);
+            int end = buffer.getInt(offsets + (i + 1) * Integer.BYTES);
+            values[i] = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    private static String readAscii(MappedByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nArcadeSnapshot Tests:");
+
+        Arcade arcade = new Arcade("GameCo");
+        arcade.addArcadeGame(new CabinetGame("CB00000001", "Test cabinet game 1", 100, true));
+        arcade.addArcadeGame(new ActiveGame("A000000001", "Test active game 1", 250, 16));
+        arcade.addArcadeGame(new VirtualRealityGame("AV00000001", "Test vr game 1", 400, 12,
+                EquipmentType.FULL_BODY_TRACKING));
+        arcade.addCustomer(new Customer("Test01", "Customer 1", 52, DiscountType.NONE, 1000));
+        arcade.addCustomer(new Customer("Test02", "Customer 2", 19, DiscountType.STUDENT, 100));
+        arcade.processTransaction("Test01", "AV00000001", true);
+        arcade.processTransaction("Test02", "A000000001", true);
+
+        Path file = Files.createTempFile("arcade", ".snapshot");
+
+        // Round trip
+        // Expected outcome: same revenue, balances and counts
+        try {
+            write(arcade, file);
+            Arcade restored = read(file);
+            if (restored.getTotalRevenue() == arcade.getTotalRevenue()
+                    && restored.getCustomer("Test02").getBalance() == -150
+                    && restored.getMedianGamePrice() == arcade.getMedianGamePrice()
+                    && restored.countArcadeGames()[2] == 1) {
+                System.out.println("Test 1 passed: " + restored + ", " + restored.getCustomer("Test02"));
+            } else {
+                System.err.println("Test 1 failed: " + restored);
+            }
+        } catch (IOException e) {
+            System.err.println("Test 1 failed: " + e.getMessage());
+        }
+
+        // Corrupted snapshot
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(java.nio.ByteBuffer.wrap(new byte[]{0x7F}), 20);
+        }
+        try {
+            read(file);
+            System.err.println("Test 2 failed: corruption not detected");
+        } catch (IOException e) {
+            System.out.println("Test 2 passed: " + e.getMessage());
+        }
+
+        // Names outside plain text survive the round trip
+        // Expected outcome: same name, NUL and emoji intact
+        try {
+            String name = "GameCo \u0000 \uD83C\uDFAE";
+            write(new Arcade(name), file);
+            String restored = read(file).getName();
+            if (restored.equals(name)) {
+                System.out.println("Test 3 passed");
+            } else {
+                System.err.println("Test 3 failed: " + restored);
+            }
+        } catch (IOException e) {
+            System.err.println("Test 3 failed: " + e.getMessage());
+        }
+
+        // Snapshot mid-day with a journal attached, recovery
+        // replays only what came after it
+        // Expected outcome: same balances and revenue as live
+        Path journalFile = Files.createTempFile("arcade", ".journal");
+        Files.delete(journalFile);
+        try (TransactionJournal journal = TransactionJournal.open(journalFile)) {
+            arcade.setJournal(journal);
+            arcade.getCustomer("Test01").addFunds(500);
+            arcade.processTransaction("Test01", "CB00000001", true);
+            write(arcade, file);
+            arcade.getCustomer("Test02").addFunds(300);
+            arcade.processTransaction("Test01", "CB00000001", false);
+            arcade.addCustomer(new Customer("Test03", "Customer 3", 30, DiscountType.NONE, 700));
+        }
+        arcade.setJournal(null);
+        Arcade recovered = recover(file, journalFile);
+        if (recovered.getTotalRevenue() == arcade.getTotalRevenue()
+                && recovered.getCustomer("Test01").getBalance() == arcade.getCustomer("Test01").getBalance()
+                && recovered.getCustomer("Test02").getBalance() == arcade.getCustomer("Test02").getBalance()
+                && recovered.getCustomer("Test03").getBalance() == 700) {
+            System.out.println("Test 4 passed: " + recovered);
+        } else {
+            System.err.println("Test 4 failed: " + recovered + ", live " + arcade);
+        }
+
+        Files.deleteIfExists(journalFile);
+        Files.deleteIfExists(file);
+    }
+}
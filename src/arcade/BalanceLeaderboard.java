@@ -0,0 +1,373 @@
+/*************************************************************************
+
+ File: BalanceLeaderboard.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Live ranking of customers by balance, kept up to date
+ through the customer balance hook so the richest and
+ poorest customers, and any customer's rank, can be found
+ without scanning every account
+ Turned on with Arcade.enableLeaderboard, a balance change
+ only marks its customer dirty, the tree is brought up to
+ date by the next read, so plays never wait on the tree
+
+
+ Data Structure reasoning:
+ Using an order statistic treap (a randomised balanced
+ binary search tree where each node knows its subtree size)
+ ordered by balance then ID, so insert, remove, rank and
+ k-th lookups are all O(log n) expected, nodes are reused
+ when a balance changes so updates don't allocate
+ Nodes are found through a LongKeyMap keyed by CompactId,
+ lock-free to read, and each node has a dirty flag so it
+ sits in the lock-free dirty queue at most once, the queue
+ never holds more than one entry per customer however many
+ plays they make between reads
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import customer.Customer;
+import customer.DiscountType;
+import validation.CompactId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+public class BalanceLeaderboard {
+
+    // Tree node, one per tracked customer
+    private static final class Node {
+        private final Customer customer;
+        private final String id;
+        private final int priority;
+        // 1 while queued for repositioning
+        private volatile int dirty;
+        private int balance;
+        private int size;
+        private Node left;
+        private Node right;
+
+        private Node(Customer customer, int priority) {
+            this.customer = customer;
+            this.id = customer.getId();
+            this.priority = priority;
+            this.size = 1;
+        }
+    }
+
+    // Member Variables //
+    private static final AtomicIntegerFieldUpdater<Node> DIRTY =
+            AtomicIntegerFieldUpdater.newUpdater(Node.class, "dirty");
+
+    private final LongKeyMap<Node> nodes;
+    private final ConcurrentLinkedQueue<Node> dirtyNodes;
+    // Tree fields are guarded by this
+    private Node root;
+    // Xorshift state for node priorities
+    private int seed;
+
+    // Constructor //
+    public BalanceLeaderboard() {
+        this.nodes = new LongKeyMap<>();
+        this.dirtyNodes = new ConcurrentLinkedQueue<>();
+        this.seed = 0x2545F491;
+    }
+
+    // Functions //
+
+    // Starts tracking a customer at their current balance,
+    // customers with IDs CompactId can't encode aren't tracked
+    public synchronized void add(Customer customer) {
+        long key = CompactId.encodeCustomerId(customer.getId());
+        if (key == CompactId.INVALID || nodes.get(key) != null) {
+            return;
+        }
+        // Published before the balance is read, so a change
+        // made in between still queues the node
+        Node node = new Node(customer, nextPriority());
+        nodes.putIfAbsent(key, node);
+        node.balance = customer.getBalance();
+        root = insert(root, node);
+    }
+
+    // Marks a customer for repositioning after a balance
+    // change, lock-free, the tree catches up on the next read
+    public void update(Customer customer) {
+        Node node = nodes.get(CompactId.encodeCustomerId(customer.getId()));
+        // Already queued nodes cost one volatile read
+        if (node != null && node.dirty == 0 && DIRTY.compareAndSet(node, 0, 1)) {
+            dirtyNodes.offer(node);
+        }
+    }
+
+    // Repositions every dirty customer at their latest balance
+    // the flag is cleared before the balance is read, so a
+    // change racing with this queues the node again
+    private void drain() {
+        Node node;
+        while ((node = dirtyNodes.poll()) != null) {
+            node.dirty = 0;
+            int balance = node.customer.getBalance();
+            if (balance == node.balance) {
+                continue;
+            }
+            root = remove(root, node);
+            node.balance = balance;
+            node.left = null;
+            node.right = null;
+            node.size = 1;
+            root = insert(root, node);
+        }
+    }
+
+    // Highest balance, null if there are no customers
+    public synchronized Customer richest() {
+        drain();
+        return root == null ? null : select(size(root) - 1).customer;
+    }
+
+    // Up to k customers, richest first
+    public synchronized List<Customer> top(int k) {
+        drain();
+        int count = Math.min(k, size(root));
+        List<Customer> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(select(size(root) - 1 - i).customer);
+        }
+        return result;
+    }
+
+    // Up to k customers, poorest first
+    public synchronized List<Customer> bottom(int k) {
+        drain();
+        int count = Math.min(k, size(root));
+        List<Customer> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(select(i).customer);
+        }
+        return result;
+    }
+
+    // Rank by balance, 1 is richest, -1 if not tracked
+    public synchronized int rank(String customerId) {
+        Node node = nodes.get(CompactId.encodeCustomerId(customerId));
+        if (node == null) {
+            return -1;
+        }
+        drain();
+        // Counts nodes ordered after (richer than) this one
+        int richer = 0;
+        Node current = root;
+        while (current != null) {
+            int comparison = compare(node, current);
+            if (comparison < 0) {
+                richer += 1 + size(current.right);
+                current = current.left;
+            } else if (comparison > 0) {
+                current = current.right;
+            } else {
+                richer += size(current.right);
+                break;
+            }
+        }
+        return richer + 1;
+    }
+
+    public synchronized int size() {
+        drain();
+        return size(root);
+    }
+
+    // --- TREAP OPERATIONS --- //
+
+    // Orders by balance, then ID so every key is unique
+    private static int compare(Node a, Node b) {
+        int comparison = Integer.compare(a.balance, b.balance);
+        return comparison != 0 ? comparison : a.id.compareTo(b.id);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void resize(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private Node insert(Node tree, Node node) {
+        if (tree == null) {
+            return node;
+        }
+        if (node.priority > tree.priority) {
+            split(tree, node);
+            resize(node);
+            return node;
+        }
+        if (compare(node, tree) < 0) {
+            tree.left = insert(tree.left, node);
+        } else {
+            tree.right = insert(tree.right, node);
+        }
+        resize(tree);
+        return tree;
+    }
+
+    // Splits tree around key, the halves become key's children
+    private void split(Node tree, Node key) {
+        if (tree == null) {
+            key.left = null;
+            key.right = null;
+            return;
+        }
+        if (compare(tree, key) < 0) {
+            split(tree.right, key);
+            tree.right = key.left;
+            resize(tree);
+            key.left = tree;
+        } else {
+            split(tree.left, key);
+            tree.left = key.right;
+            resize(tree);
+            key.right = tree;
+        }
+    }
+
+    private Node remove(Node tree, Node key) {
+        if (tree == null) {
+            return null;
+        }
+        if (tree == key) {
+            return merge(tree.left, tree.right);
+        }
+        if (compare(key, tree) < 0) {
+            tree.left = remove(tree.left, key);
+        } else {
+            tree.right = remove(tree.right, key);
+        }
+        resize(tree);
+        return tree;
+    }
+
+    private Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            resize(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        resize(b);
+        return b;
+    }
+
+    // Node at 0 based position in ascending balance order
+    private Node select(int index) {
+        Node current = root;
+        while (current != null) {
+            int leftSize = size(current.left);
+            if (index < leftSize) {
+                current = current.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                current = current.right;
+            } else {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    // Test harness //
+    public static void main(String[] args) {
+        System.out.println("\nBalanceLeaderboard Tests:");
+
+        BalanceLeaderboard leaderboard = new BalanceLeaderboard();
+        Customer[] customers = new Customer[100];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer(String.format("LB%04d", i), "Customer " + i, 30, DiscountType.NONE, i * 10);
+            leaderboard.add(customers[i]);
+        }
+
+        // Top and bottom
+        // Expected outcome: LB0099 richest, LB0000 poorest
+        if (leaderboard.top(3).get(0) == customers[99] && leaderboard.bottom(3).get(0) == customers[0]) {
+            System.out.println("Test 1 passed: " + leaderboard.top(1));
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Balance change moves customer to the top
+        // Expected outcome: rank 1
+        customers[10].addFunds(5000);
+        leaderboard.update(customers[10]);
+        if (leaderboard.rank("LB0010") == 1 && leaderboard.richest() == customers[10]) {
+            System.out.println("Test 2 passed: rank = " + leaderboard.rank("LB0010"));
+        } else {
+            System.err.println("Test 2 failed: rank = " + leaderboard.rank("LB0010"));
+        }
+
+        // Ranks stay consistent
+        // Expected outcome: LB0099 rank 2, LB0000 rank 100
+        if (leaderboard.rank("LB0099") == 2 && leaderboard.rank("LB0000") == 100 && leaderboard.size() == 100) {
+            System.out.println("Test 3 passed");
+        } else {
+            System.err.println("Test 3 failed");
+        }
+
+        // Unknown customer
+        if (leaderboard.rank("ZZZZZZ") == -1) {
+            System.out.println("Test 4 passed");
+        } else {
+            System.err.println("Test 4 failed");
+        }
+
+        // Updates from several threads, each customer queued at
+        // most once however often their balance changes
+        // Expected outcome: LB0000 richest, queue drained
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    customers[0].addFunds(1);
+                    leaderboard.update(customers[0]);
+                    leaderboard.update(customers[50]);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (leaderboard.dirtyNodes.size() <= 2 && leaderboard.richest() == customers[0]
+                && leaderboard.dirtyNodes.isEmpty() && leaderboard.rank("LB0010") == 2) {
+            System.out.println("Test 5 passed: " + leaderboard.top(1));
+        } else {
+            System.err.println("Test 5 failed: " + leaderboard.top(1));
+        }
+    }
+}
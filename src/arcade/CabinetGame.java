@@ -31,7 +31,6 @@ public class CabinetGame extends ArcadeGame {
     // Constructor //
     public CabinetGame(String id, String name, int price, boolean hasRewardPayout) throws InvalidGameIdException{
         super(id, name, price);
-        validateId(id);
         this.hasRewardPayout = hasRewardPayout;
     }
 
@@ -72,6 +71,11 @@ public class CabinetGame extends ArcadeGame {
         return hasRewardPayout;
     }
 
+    @Override
+    public GameType getGameType(){
+        return GameType.CABINET;
+    }
+
     // Overrides the toString method
     // Providing a formatted CabinetGame representation
     @Override
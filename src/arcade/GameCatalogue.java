@@ -0,0 +1,341 @@
+/*************************************************************************
+
+ File: GameCatalogue.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ An Arcade's games together with their price and type
+ indexes, published as one object so a whole catalogue can
+ be swapped for another without pausing plays
+ New catalogues are put together off to the side with a
+ Builder, e.g. from an updated games file, then handed to
+ Arcade.replaceGames
+ Once published a catalogue never changes, adding a game
+ means a Builder seeded with the current catalogue, which
+ Arcade.addArcadeGame does, so a reader never sees a game
+ before its price and type index entries, repricing a game
+ means a new ArcadeGame in a new catalogue
+
+
+ Data Structure reasoning:
+ Games are in a LongKeyMap keyed by CompactId, alongside
+ the PriceIndex and GameTypeIndex Arcade used to hold
+ directly, a play reads the arcade's catalogue reference
+ once and does its lookup in that, so a play running
+ across a reload sees the old catalogue or the new one,
+ never a mixture
+ Catalogues built from one another share an append only
+ Store, a catalogue is the first size games added to it,
+ so adding a game to the latest catalogue is one map
+ insert and one index insert rather than a copy
+ Each map entry remembers its position, so an older
+ catalogue's lookups skip games added after it, and an
+ older catalogue's price and type queries rebuild its own
+ indexes once, as only the store's latest catalogue can
+ use the shared ones
+ A Builder seeded with a catalogue that isn't the store's
+ latest copies its games into a new Store first
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import exceptions.InvalidGameIdException;
+import validation.CompactId;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+public class GameCatalogue {
+
+    // Member Variables //
+    private final Store store;
+    // Games in the order added, the first size are this catalogue's
+    private final ArcadeGame[] order;
+    private final int size;
+    // Built on first use once this is no longer the latest
+    private volatile PriceIndex ownPrices;
+    private volatile GameTypeIndex ownTypes;
+
+    // Constructor //
+    // Empty catalogue, filled through a Builder
+    GameCatalogue() {
+        this(new Store(0), new ArcadeGame[0], 0);
+    }
+
+    private GameCatalogue(Store store, ArcadeGame[] order, int size) {
+        this.store = store;
+        this.order = order;
+        this.size = size;
+    }
+
+    // Functions //
+
+    // Game with the given compact ID, null if absent
+    ArcadeGame get(long gameKey) {
+        Slot slot = store.games.get(gameKey);
+        // Games added after this catalogue aren't part of it
+        return slot != null && slot.position < size ? slot.game : null;
+    }
+
+    // Game with the given ID, null if absent
+    public ArcadeGame find(String gameID) {
+        return get(CompactId.encodeGameId(gameID));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Every game, in the order added
+    public List<ArcadeGame> getGames() {
+        return Collections.unmodifiableList(Arrays.asList(order).subList(0, size));
+    }
+
+    // Answers query from this catalogue's prices
+    <T> T queryPrices(Function<PriceIndex, T> query) {
+        synchronized (store) {
+            if (store.size == size) {
+                return query.apply(store.priceIndex);
+            }
+        }
+        PriceIndex prices = ownPrices;
+        if (prices == null) {
+            int[] sorted = new int[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = order[i].getPrice();
+            }
+            Arrays.sort(sorted);
+            // Ascending order appends, no shifting
+            prices = new PriceIndex();
+            for (int price : sorted) {
+                prices.add(price);
+            }
+            ownPrices = prices;
+        }
+        return query.apply(prices);
+    }
+
+    // Answers query from this catalogue's game types
+    <T> T queryTypes(Function<GameTypeIndex, T> query) {
+        synchronized (store) {
+            if (store.size == size) {
+                return query.apply(store.typeIndex);
+            }
+        }
+        GameTypeIndex types = ownTypes;
+        if (types == null) {
+            types = new GameTypeIndex();
+            for (int i = 0; i < size; i++) {
+                types.add(order[i]);
+            }
+            ownTypes = types;
+        }
+        return query.apply(types);
+    }
+
+    // Map entry, position says which catalogues hold the game
+    private static final class Slot {
+        final ArcadeGame game;
+        final int position;
+
+        Slot(ArcadeGame game, int position) {
+            this.game = game;
+            this.position = position;
+        }
+    }
+
+    // Games shared by a line of catalogues, only appended to,
+    // appends and index reads hold the store's lock
+    private static final class Store {
+        final LongKeyMap<Slot> games;
+        final PriceIndex priceIndex;
+        final GameTypeIndex typeIndex;
+        ArcadeGame[] order;
+        int size;
+
+        Store(int expectedSize) {
+            this.games = new LongKeyMap<>(expectedSize);
+            this.priceIndex = new PriceIndex();
+            this.typeIndex = new GameTypeIndex();
+            this.order = new ArcadeGame[Math.max(16, expectedSize)];
+        }
+
+        // A store holding the first size games of order, whose
+        // charge tables are already built
+        Store(ArcadeGame[] order, int size) {
+            this(size + 1);
+            int[] sorted = new int[size];
+            for (int i = 0; i < size; i++) {
+                ArcadeGame game = order[i];
+                games.putIfAbsent(CompactId.encodeGameId(game.getId()), new Slot(game, i));
+                typeIndex.add(game);
+                sorted[i] = game.getPrice();
+            }
+            Arrays.sort(sorted);
+            for (int price : sorted) {
+                priceIndex.add(price);
+            }
+            System.arraycopy(order, 0, this.order, 0, size);
+            this.size = size;
+        }
+
+        // Adds a game, IDs are unique within a store, the map
+        // entry goes in last so a lookup that finds the game
+        // sees its index entries
+        synchronized void append(ArcadeGame game) throws InvalidGameIdException {
+            long key = CompactId.encodeGameId(game.getId());
+            if (key == CompactId.INVALID) {
+                throw new InvalidGameIdException("Invalid game ID.");
+            }
+            if (games.get(key) != null) {
+                throw new InvalidGameIdException("Game ID already exists.");
+            }
+            // Charge table built before the game is visible to plays
+            game.prepareChargeTable();
+            if (size == order.length) {
+                // Older catalogues keep the array they were given
+                order = Arrays.copyOf(order, size * 2);
+            }
+            order[size] = game;
+            priceIndex.add(game.getPrice());
+            typeIndex.add(game);
+            games.putIfAbsent(key, new Slot(game, size));
+            size++;
+        }
+
+        synchronized GameCatalogue latest() {
+            return new GameCatalogue(this, order, size);
+        }
+    }
+
+    // Puts a new catalogue together before it's published,
+    // used by one thread
+    public static final class Builder {
+        private Store store;
+        private int size;
+        private boolean built;
+
+        public Builder() {
+            this.store = new Store(0);
+        }
+
+        // Starts with every game in base, base is left as it is
+        public Builder(GameCatalogue base) {
+            this.store = base.store;
+            this.size = base.size;
+        }
+
+        public Builder add(ArcadeGame game) throws InvalidGameIdException {
+            if (built) {
+                throw new IllegalStateException("Catalogue already built.");
+            }
+            synchronized (store) {
+                if (store.size != size) {
+                    // Something else was added after this builder's
+                    // base, carry on from a copy of the base
+                    store = new Store(store.order, size);
+                }
+                store.append(game);
+                size = store.size;
+            }
+            return this;
+        }
+
+        // The finished catalogue, the builder can't be reused
+        public GameCatalogue build() {
+            if (built) {
+                throw new IllegalStateException("Catalogue already built.");
+            }
+            built = true;
+            synchronized (store) {
+                if (store.size != size) {
+                    store = new Store(store.order, size);
+                }
+                return store.latest();
+            }
+        }
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws Exception {
+        System.out.println("\nGameCatalogue Tests:");
+
+        // Building a catalogue and its indexes
+        // Expected outcome: 3 games, median 200
+        GameCatalogue catalogue = new Builder()
+                .add(new CabinetGame("CB00000001", "Cabinet", 100, false))
+                .add(new ActiveGame("AX00000001", "Active", 200, 12))
+                .add(new VirtualRealityGame("AV00000001", "VR", 300, 12, EquipmentType.HEADSET_ONLY))
+                .build();
+        int median = catalogue.queryPrices(PriceIndex::median);
+        if (catalogue.size() == 3 && median == 200
+                && catalogue.queryTypes(types -> types.count(GameType.ACTIVE)) == 1
+                && catalogue.find("AX00000001") != null) {
+            System.out.println("Test 1 passed: median = " + median);
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Duplicate IDs are refused
+        try {
+            new Builder()
+                    .add(new CabinetGame("CB00000001", "Cabinet", 100, false))
+                    .add(new CabinetGame("CB00000001", "Cabinet again", 150, false));
+            System.err.println("Test 2 failed");
+        } catch (InvalidGameIdException e) {
+            System.out.println("Test 2 passed: " + e.getMessage());
+        }
+
+        // Seeding a builder from a published catalogue
+        // Expected outcome: new one has 4 games, original keeps 3
+        GameCatalogue extended = new Builder(catalogue)
+                .add(new CabinetGame("CB00000002", "Cabinet two", 150, true))
+                .build();
+        int extendedMedian = extended.queryPrices(PriceIndex::median);
+        if (extended.size() == 4 && catalogue.size() == 3 && catalogue.find("CB00000002") == null
+                && extended.find("CB00000002") != null && extendedMedian == 175
+                && catalogue.queryPrices(PriceIndex::median) == 200
+                && extended.queryTypes(types -> types.count(GameType.CABINET)) == 2
+                && catalogue.queryTypes(types -> types.count(GameType.CABINET)) == 1) {
+            System.out.println("Test 3 passed: median = " + extendedMedian);
+        } else {
+            System.err.println("Test 3 failed");
+        }
+
+        // Two builders from the same catalogue don't see each
+        // other's games
+        // Expected outcome: each has its own fourth game
+        GameCatalogue left = new Builder(catalogue)
+                .add(new ActiveGame("AX00000002", "Left", 400, 12))
+                .build();
+        if (left.size() == 4 && left.find("CB00000002") == null && left.find("AX00000002") != null
+                && extended.find("AX00000002") == null && left.queryPrices(PriceIndex::median) == 250) {
+            System.out.println("Test 4 passed: " + left.getGames().size() + " games");
+        } else {
+            System.err.println("Test 4 failed");
+        }
+
+        // Games added one at a time aren't copied each time
+        // Expected outcome: 40,000 adds in seconds, not minutes
+        long start = System.nanoTime();
+        GameCatalogue grown = new GameCatalogue();
+        for (int i = 0; i < 40_000; i++) {
+            grown = new Builder(grown)
+                    .add(new CabinetGame(String.format("CB%08d", i), "Cabinet", 100 + (i * 7919) % 5000, false))
+                    .build();
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        if (grown.size() == 40_000 && grown.find("CB00039999") != null && millis < 10_000) {
+            System.out.println("Test 5 passed: 40,000 adds in " + millis + "ms");
+        } else {
+            System.err.println("Test 5 failed");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/*************************************************************************
+
+ File: GameType.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ ENUM - enumerates the concrete kinds of arcade game,
+ used to key per type counters and indexes
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+public enum GameType {
+    CABINET,
+    ACTIVE,
+    VIRTUAL_REALITY;
+}
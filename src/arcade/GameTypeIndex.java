@@ -0,0 +1,147 @@
+/*************************************************************************
+
+ File: GameTypeIndex.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Secondary indexes over the game catalogue, kept up to date
+ by Arcade as games are added, so counts per game type and
+ lookups like "all full body tracking VR games" are direct
+ rather than a scan with instanceof checks
+
+
+ Data Structure reasoning:
+ Using EnumMaps keyed by GameType and EquipmentType,
+ array backed so lookups are an ordinal index, plus a
+ primitive count per type so countArcadeGames is O(1)
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+public class GameTypeIndex {
+
+    // Member Variables //
+    private final int[] counts;
+    private final Map<GameType, List<ArcadeGame>> byType;
+    private final Map<EquipmentType, List<VirtualRealityGame>> byEquipment;
+    private final List<CabinetGame> withRewardPayout;
+    private final List<CabinetGame> withoutRewardPayout;
+
+    // Constructor //
+    public GameTypeIndex() {
+        this.counts = new int[GameType.values().length];
+        this.byType = new EnumMap<>(GameType.class);
+        for (GameType gameType : GameType.values()) {
+            byType.put(gameType, new ArrayList<>());
+        }
+        this.byEquipment = new EnumMap<>(EquipmentType.class);
+        for (EquipmentType equipmentType : EquipmentType.values()) {
+            byEquipment.put(equipmentType, new ArrayList<>());
+        }
+        this.withRewardPayout = new ArrayList<>();
+        this.withoutRewardPayout = new ArrayList<>();
+    }
+
+    // Functions //
+
+    public synchronized void add(ArcadeGame game) {
+        GameType gameType = game.getGameType();
+        counts[gameType.ordinal()]++;
+        byType.get(gameType).add(game);
+
+        if (game instanceof VirtualRealityGame virtualRealityGame) {
+            byEquipment.get(virtualRealityGame.getEquipmentType()).add(virtualRealityGame);
+        } else if (game instanceof CabinetGame cabinetGame) {
+            rewardList(cabinetGame.hasRewardPayout()).add(cabinetGame);
+        }
+    }
+
+    public synchronized void remove(ArcadeGame game) {
+        GameType gameType = game.getGameType();
+        if (!byType.get(gameType).remove(game)) {
+            return;
+        }
+        counts[gameType.ordinal()]--;
+
+        if (game instanceof VirtualRealityGame virtualRealityGame) {
+            byEquipment.get(virtualRealityGame.getEquipmentType()).remove(virtualRealityGame);
+        } else if (game instanceof CabinetGame cabinetGame) {
+            rewardList(cabinetGame.hasRewardPayout()).remove(cabinetGame);
+        }
+    }
+
+    // Number of games of one type
+    public synchronized int count(GameType gameType) {
+        return counts[gameType.ordinal()];
+    }
+
+    // Counts for every type, indexed by GameType ordinal
+    public synchronized int[] counts() {
+        return counts.clone();
+    }
+
+    public synchronized List<ArcadeGame> getGames(GameType gameType) {
+        return List.copyOf(byType.get(gameType));
+    }
+
+    public synchronized List<VirtualRealityGame> getGames(EquipmentType equipmentType) {
+        return List.copyOf(byEquipment.get(equipmentType));
+    }
+
+    public synchronized List<CabinetGame> getCabinetGames(boolean hasRewardPayout) {
+        return List.copyOf(rewardList(hasRewardPayout));
+    }
+
+    private List<CabinetGame> rewardList(boolean hasRewardPayout) {
+        return hasRewardPayout ? withRewardPayout : withoutRewardPayout;
+    }
+
+    // Test harness //
+    public static void main(String[] args) {
+        System.out.println("\nGameTypeIndex Tests:");
+
+        GameTypeIndex index = new GameTypeIndex();
+        index.add(new CabinetGame("C000000001", "Test cabinet game 1", 100, true));
+        index.add(new CabinetGame("C000000002", "Test cabinet game 2", 100, false));
+        index.add(new ActiveGame("A000000001", "Test active game 1", 100, 12));
+        VirtualRealityGame fullBody = new VirtualRealityGame("AV00000001", "Test vr game 1", 100, 12,
+                EquipmentType.FULL_BODY_TRACKING);
+        index.add(fullBody);
+        index.add(new VirtualRealityGame("AV00000002", "Test vr game 2", 100, 12, EquipmentType.HEADSET_ONLY));
+
+        // Counts per type
+        // Expected outcome: 2, 1, 2
+        if (index.count(GameType.CABINET) == 2 && index.count(GameType.ACTIVE) == 1
+                && index.count(GameType.VIRTUAL_REALITY) == 2) {
+            System.out.println("Test 1 passed");
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Equipment and reward lookups
+        if (index.getGames(EquipmentType.FULL_BODY_TRACKING).equals(List.of(fullBody))
+                && index.getCabinetGames(true).size() == 1) {
+            System.out.println("Test 2 passed: " + index.getGames(EquipmentType.FULL_BODY_TRACKING));
+        } else {
+            System.err.println("Test 2 failed");
+        }
+
+        // Removal
+        index.remove(fullBody);
+        if (index.count(GameType.VIRTUAL_REALITY) == 1 && index.getGames(EquipmentType.FULL_BODY_TRACKING).isEmpty()) {
+            System.out.println("Test 3 passed");
+        } else {
+            System.err.println("Test 3 failed");
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*************************************************************************
+
+ File: LongKeyMap.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Map from a non-negative long key, such as a CompactId,
+ to a value, used by Arcade to hold customers and games
+ Lookups are lock-free and safe alongside a writer, so
+ arcades can be shared between threads
+ Entries are only ever added, arcades never remove
+ customers or games
+
+
+ Data Structure reasoning:
+ Open addressing with linear probing over a primitive
+ long[] of keys and a parallel array of values, so an
+ entry costs 2 array slots rather than a HashMap node,
+ a boxed key and a String, and a lookup is a few array
+ reads with no hashCode or equals calls
+ Writers are synchronized, a value is written before its
+ key is released and readers acquire the key first, so a
+ reader that finds a key always sees its value
+ Growing builds a new table which is published through a
+ volatile field, readers still on the old table see a
+ complete, if slightly stale, set of entries
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LongKeyMap<V> {
+
+    // Member Variables //
+    // Key slots hold key + 1, so 0 marks an empty slot
+    private static final long EMPTY = 0;
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile Table table;
+    private int size;
+
+    // Constructors //
+    public LongKeyMap() {
+        this(16);
+    }
+
+    public LongKeyMap(int expectedSize) {
+        int capacity = 16;
+        // Kept at most 2/3 full
+        while (capacity * 2 < expectedSize * 3) {
+            capacity <<= 1;
+        }
+        this.table = new Table(capacity);
+    }
+
+    // Functions //
+
+    // Value for key, null if absent
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key < 0) {
+            return null;
+        }
+        Table table = this.table;
+        long stored = key + 1;
+        int mask = table.keys.length - 1;
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            long current = (long) KEYS.getAcquire(table.keys, i);
+            if (current == stored) {
+                return (V) table.values[i];
+            }
+            if (current == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    // Adds the entry unless the key is present, returns the
+    // existing value or null if it was added
+    @SuppressWarnings("unchecked")
+    public synchronized V putIfAbsent(long key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Keys can't be negative.");
+        }
+        if (value == null) {
+            throw new NullPointerException("Values can't be null.");
+        }
+        Table table = this.table;
+        long stored = key + 1;
+        int mask = table.keys.length - 1;
+        int i = slot(key, mask);
+        for (; table.keys[i] != EMPTY; i = (i + 1) & mask) {
+            if (table.keys[i] == stored) {
+                return (V) table.values[i];
+            }
+        }
+
+        if ((size + 1) * 3 > table.keys.length * 2) {
+            // Full enough, insert into a bigger table instead
+            table = grow(table);
+            insert(table, stored, value);
+            this.table = table;
+        } else {
+            table.values[i] = value;
+            KEYS.setRelease(table.keys, i, stored);
+        }
+        size++;
+        return null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Every value, in no particular order
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        Table table = this.table;
+        List<V> values = new ArrayList<>();
+        for (int i = 0; i < table.keys.length; i++) {
+            if ((long) KEYS.getAcquire(table.keys, i) != EMPTY) {
+                values.add((V) table.values[i]);
+            }
+        }
+        return values;
+    }
+
+    // Calls action with every key and value, in no particular order
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> action) {
+        Table table = this.table;
+        for (int i = 0; i < table.keys.length; i++) {
+            long stored = (long) KEYS.getAcquire(table.keys, i);
+            if (stored != EMPTY) {
+                action.accept(stored - 1, (V) table.values[i]);
+            }
+        }
+    }
+
+    // Receives each entry from forEach, keys stay primitive
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    // --- TABLE HANDLING --- //
+
+    // Fibonacci hashing spreads sequential IDs across slots
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static Table grow(Table old) {
+        Table table = new Table(old.keys.length * 2);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != EMPTY) {
+                insert(table, old.keys[i], old.values[i]);
+            }
+        }
+        return table;
+    }
+
+    // Insert into a table no reader can see yet
+    private static void insert(Table table, long stored, Object value) {
+        int mask = table.keys.length - 1;
+        int i = slot(stored - 1, mask);
+        while (table.keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        table.keys[i] = stored;
+        table.values[i] = value;
+    }
+
+    // Keys and values, capacity is a power of 2
+    private static final class Table {
+        private final long[] keys;
+        private final Object[] values;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+        }
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("\nLongKeyMap Tests:");
+
+        // Adding, growing and looking up
+        LongKeyMap<String> map = new LongKeyMap<>();
+        boolean found = true;
+        for (long key = 0; key < 10_000; key++) {
+            map.putIfAbsent(key * 62, "v" + key);
+        }
+        for (long key = 0; key < 10_000; key++) {
+            found &= ("v" + key).equals(map.get(key * 62));
+        }
+        if (found && map.size() == 10_000 && map.get(1) == null && map.get(-5) == null) {
+            System.out.println("Test 1 passed");
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Duplicate keys keep the first value
+        // Expected outcome: v0
+        String existing = map.putIfAbsent(0, "duplicate");
+        if ("v0".equals(existing) && map.values().size() == 10_000) {
+            System.out.println("Test 2 passed: " + existing);
+        } else {
+            System.err.println("Test 2 failed: " + existing);
+        }
+
+        // Reader running alongside a writer never sees a
+        // key without its value
+        LongKeyMap<Long> shared = new LongKeyMap<>();
+        int entries = 200_000;
+        boolean[] failed = new boolean[1];
+        Thread reader = new Thread(() -> {
+            for (long key = 0; key < entries; key++) {
+                Long value;
+                while ((value = shared.get(key)) == null) {
+                    Thread.onSpinWait();
+                }
+                if (value != key) {
+                    failed[0] = true;
+                }
+            }
+        });
+        reader.start();
+        for (long key = 0; key < entries; key++) {
+            shared.putIfAbsent(key, key);
+        }
+        reader.join();
+        if (!failed[0] && shared.size() == entries) {
+            System.out.println("Test 3 passed");
+        } else {
+            System.err.println("Test 3 failed");
+        }
+    }
+}
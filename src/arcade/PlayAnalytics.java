@@ -0,0 +1,374 @@
+/*************************************************************************
+
+ File: PlayAnalytics.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Rolling time window analytics for an Arcade, turned on
+ with Arcade.enableAnalytics and fed by every successful
+ play, answering questions such as plays per game in the
+ last hour or peak vs off-peak revenue per GameType today
+ Three windows are kept:
+ MINUTE, the last 60 seconds in 1 second buckets
+ HOUR, the last 60 minutes in 1 minute buckets
+ DAY, the last 24 hours in 1 hour buckets
+ A window covers the current, partly filled, bucket and
+ the full buckets before it, so it is exact to within one
+ bucket at its older end
+ Time comes from an injectable clock in milliseconds, so
+ tests and replays can drive it
+
+
+ Data Structure reasoning:
+ Every series is a ring buffer per window, an
+ AtomicLongArray of buckets with a column per counter and
+ a stamp saying which time slot each bucket holds
+ Recording adds into the current bucket with no locking
+ or allocation, a bucket left over from an earlier lap of
+ the ring is cleared by the first play to reach it
+ A query sums at most 60 buckets of one column, skipping
+ stale ones, so its cost is fixed however many plays
+ came in and nothing needs expiring in the background
+ Per game rings are held in a LongKeyMap keyed by
+ CompactId, DiscountType and GameType counters are
+ columns of one shared ring indexed by ordinal
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import customer.DiscountType;
+import money.Money;
+import validation.CompactId;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+public class PlayAnalytics {
+
+    // Rolling windows, bucket length and bucket count
+    public enum Window {
+        MINUTE(1_000L, 60),
+        HOUR(60_000L, 60),
+        DAY(3_600_000L, 24);
+
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+        }
+
+        public long getBucketMillis() {return bucketMillis;}
+
+        public int getBuckets() {return buckets;}
+    }
+
+    // Member Variables //
+    private static final Window[] WINDOWS = Window.values();
+    private static final int DISCOUNT_COUNT = DiscountType.values().length;
+    private static final int GAME_TYPE_COUNT = GameType.values().length;
+
+    // Shared ring columns, plays then revenue for each
+    // DiscountType, then each GameType peak and off-peak
+    private static final int DISCOUNT_PLAYS = 0;
+    private static final int DISCOUNT_REVENUE = DISCOUNT_COUNT;
+    private static final int TYPE_PLAYS = 2 * DISCOUNT_COUNT;
+    private static final int TYPE_REVENUE = TYPE_PLAYS + 2 * GAME_TYPE_COUNT;
+    private static final int TOTAL_COLUMNS = TYPE_REVENUE + 2 * GAME_TYPE_COUNT;
+
+    // Per game ring columns
+    private static final int GAME_PLAYS = 0;
+    private static final int GAME_REVENUE = 1;
+
+    private final LongSupplier clock;
+    // One ring per Window, indexed by ordinal
+    private final Ring[] totals;
+    private final LongKeyMap<Ring[]> games;
+
+    // Constructors //
+    public PlayAnalytics() {
+        this(System::currentTimeMillis);
+    }
+
+    // clock returns the time in milliseconds
+    public PlayAnalytics(LongSupplier clock) {
+        this.clock = clock;
+        this.totals = rings(TOTAL_COLUMNS);
+        this.games = new LongKeyMap<>();
+    }
+
+    // Functions //
+
+    // --- RECORDING --- //
+
+    // Successful play of game, charged amount pence
+    void recordPlay(long gameKey, ArcadeGame game, DiscountType discountType, boolean peak, int amount) {
+        recordPlay(clock.getAsLong(), gameKey, game, discountType, peak, amount);
+    }
+
+    // As above at a time already read from the clock, so a
+    // batch of plays reads it once
+    void recordPlay(long now, long gameKey, ArcadeGame game, DiscountType discountType, boolean peak, int amount) {
+        Ring[] gameRings = games.get(gameKey);
+        if (gameRings == null) {
+            Ring[] created = rings(2);
+            Ring[] existing = games.putIfAbsent(gameKey, created);
+            gameRings = existing != null ? existing : created;
+        }
+
+        int typeColumn = typeColumn(game.getGameType(), peak);
+        for (int w = 0; w < WINDOWS.length; w++) {
+            Ring total = totals[w];
+            int bucket = total.bucketFor(now);
+            if (bucket >= 0) {
+                total.add(bucket, DISCOUNT_PLAYS + discountType.ordinal(), 1);
+                total.add(bucket, DISCOUNT_REVENUE + discountType.ordinal(), amount);
+                total.add(bucket, TYPE_PLAYS + typeColumn, 1);
+                total.add(bucket, TYPE_REVENUE + typeColumn, amount);
+            }
+
+            Ring gameRing = gameRings[w];
+            bucket = gameRing.bucketFor(now);
+            if (bucket >= 0) {
+                gameRing.add(bucket, GAME_PLAYS, 1);
+                gameRing.add(bucket, GAME_REVENUE, amount);
+            }
+        }
+    }
+
+    // Clock time now, for callers recording with a timestamp
+    long now() {
+        return clock.getAsLong();
+    }
+
+    // --- QUERIES --- //
+
+    // Plays of every game in the window
+    public long getPlays(Window window) {
+        long now = clock.getAsLong();
+        long plays = 0;
+        for (int d = 0; d < DISCOUNT_COUNT; d++) {
+            plays += totals[window.ordinal()].sum(now, DISCOUNT_PLAYS + d);
+        }
+        return plays;
+    }
+
+    // Revenue in pence from every game in the window
+    public long getRevenue(Window window) {
+        long now = clock.getAsLong();
+        long revenue = 0;
+        for (int d = 0; d < DISCOUNT_COUNT; d++) {
+            revenue += totals[window.ordinal()].sum(now, DISCOUNT_REVENUE + d);
+        }
+        return revenue;
+    }
+
+    public long getPlays(Window window, DiscountType discountType) {
+        return totals[window.ordinal()].sum(clock.getAsLong(), DISCOUNT_PLAYS + discountType.ordinal());
+    }
+
+    public long getRevenue(Window window, DiscountType discountType) {
+        return totals[window.ordinal()].sum(clock.getAsLong(), DISCOUNT_REVENUE + discountType.ordinal());
+    }
+
+    public long getPlays(Window window, GameType gameType, boolean peak) {
+        return totals[window.ordinal()].sum(clock.getAsLong(), TYPE_PLAYS + typeColumn(gameType, peak));
+    }
+
+    public long getRevenue(Window window, GameType gameType, boolean peak) {
+        return totals[window.ordinal()].sum(clock.getAsLong(), TYPE_REVENUE + typeColumn(gameType, peak));
+    }
+
+    // Plays of one game in the window, 0 for unknown games
+    public long getGamePlays(String gameID, Window window) {
+        return gameSum(gameID, window, GAME_PLAYS);
+    }
+
+    public long getGameRevenue(String gameID, Window window) {
+        return gameSum(gameID, window, GAME_REVENUE);
+    }
+
+    private long gameSum(String gameID, Window window, int column) {
+        Ring[] gameRings = games.get(CompactId.encodeGameId(gameID));
+        if (gameRings == null) {
+            return 0;
+        }
+        return gameRings[window.ordinal()].sum(clock.getAsLong(), column);
+    }
+
+    // Text report for one window
+    public String report(Window window) {
+        StringBuilder report = new StringBuilder("--- PLAYS, LAST ").append(window.name()).append(" ---\n");
+        report.append("Plays = ").append(getPlays(window)).append(", Revenue = ");
+        Money.appendMoney(report, getRevenue(window)).append('\n');
+        for (DiscountType discountType : DiscountType.values()) {
+            report.append(discountType.name()).append(": plays = ").append(getPlays(window, discountType))
+                    .append(", revenue = ");
+            Money.appendMoney(report, getRevenue(window, discountType)).append('\n');
+        }
+        for (GameType gameType : GameType.values()) {
+            report.append(gameType.name()).append(": peak = ");
+            Money.appendMoney(report, getRevenue(window, gameType, true)).append(", off-peak = ");
+            Money.appendMoney(report, getRevenue(window, gameType, false)).append('\n');
+        }
+        return report.toString();
+    }
+
+    private static int typeColumn(GameType gameType, boolean peak) {
+        return gameType.ordinal() * 2 + (peak ? 0 : 1);
+    }
+
+    private static Ring[] rings(int columns) {
+        Ring[] rings = new Ring[WINDOWS.length];
+        for (Window window : WINDOWS) {
+            rings[window.ordinal()] = new Ring(window, columns);
+        }
+        return rings;
+    }
+
+    // Buckets of counters for one window, bucket b column c is
+    // counts[b * columns + c], slots[b] is the time slot it
+    // holds plus 1, so 0 marks a bucket never used
+    private static final class Ring {
+        private final long bucketMillis;
+        private final int buckets;
+        private final int columns;
+        private final AtomicLongArray counts;
+        private final AtomicLongArray slots;
+
+        private Ring(Window window, int columns) {
+            this.bucketMillis = window.bucketMillis;
+            this.buckets = window.buckets;
+            this.columns = columns;
+            this.counts = new AtomicLongArray(buckets * columns);
+            this.slots = new AtomicLongArray(buckets);
+        }
+
+        // Bucket for a play at now, clearing it if it holds an
+        // earlier lap, -1 if now is already older than the ring
+        private int bucketFor(long now) {
+            long slot = Math.floorDiv(now, bucketMillis) + 1;
+            int bucket = (int) Math.floorMod(slot, (long) buckets);
+            long held = slots.get(bucket);
+            if (held == slot) {
+                return bucket;
+            }
+            if (held > slot) {
+                return -1;
+            }
+            return rollOver(bucket, slot);
+        }
+
+        // Only the first play into a new slot clears the bucket
+        private synchronized int rollOver(int bucket, long slot) {
+            long held = slots.get(bucket);
+            if (held < slot) {
+                for (int c = 0; c < columns; c++) {
+                    counts.set(bucket * columns + c, 0);
+                }
+                slots.set(bucket, slot);
+            } else if (held > slot) {
+                return -1;
+            }
+            return bucket;
+        }
+
+        private void add(int bucket, int column, long value) {
+            counts.getAndAdd(bucket * columns + column, value);
+        }
+
+        // Column total over the buckets still inside the window
+        private long sum(long now, int column) {
+            long current = Math.floorDiv(now, bucketMillis) + 1;
+            long oldest = current - buckets + 1;
+            long total = 0;
+            for (int b = 0; b < buckets; b++) {
+                long held = slots.get(b);
+                if (held >= oldest && held <= current) {
+                    total += counts.get(b * columns + column);
+                }
+            }
+            return total;
+        }
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws Exception {
+        System.out.println("\nPlayAnalytics Tests:");
+
+        long[] time = {0};
+        PlayAnalytics analytics = new PlayAnalytics(() -> time[0]);
+        ArcadeGame cabinet = new CabinetGame("C000000001", "Cabinet", 100, false);
+        ArcadeGame active = new ActiveGame("A000000001", "Active", 200, 12);
+        long cabinetKey = CompactId.encodeGameId(cabinet.getId());
+        long activeKey = CompactId.encodeGameId(active.getId());
+
+        // One play a second for 2 minutes
+        // Expected outcome: 60 in the minute, 120 in the hour
+        for (int second = 0; second < 120; second++) {
+            time[0] = second * 1_000L;
+            analytics.recordPlay(cabinetKey, cabinet, DiscountType.NONE, true, 100);
+        }
+        if (analytics.getPlays(Window.MINUTE) == 60 && analytics.getPlays(Window.HOUR) == 120
+                && analytics.getGamePlays("C000000001", Window.DAY) == 120) {
+            System.out.println("Test 1 passed: " + analytics.getPlays(Window.MINUTE) + ", "
+                    + analytics.getPlays(Window.HOUR));
+        } else {
+            System.err.println("Test 1 failed: " + analytics.getPlays(Window.MINUTE) + ", "
+                    + analytics.getPlays(Window.HOUR));
+        }
+
+        // Breakdowns by DiscountType and GameType peak / off-peak
+        analytics.recordPlay(activeKey, active, DiscountType.STUDENT, false, 150);
+        if (analytics.getRevenue(Window.HOUR, DiscountType.STUDENT) == 150
+                && analytics.getRevenue(Window.HOUR, GameType.ACTIVE, false) == 150
+                && analytics.getRevenue(Window.HOUR, GameType.CABINET, true) == 12_000
+                && analytics.getGameRevenue("A000000001", Window.MINUTE) == 150) {
+            System.out.println("Test 2 passed");
+        } else {
+            System.err.println("Test 2 failed");
+        }
+
+        // Old plays fall out of every window
+        // Expected outcome: 0, 0, 121
+        time[0] += 2 * 3_600_000L;
+        long day = analytics.getPlays(Window.DAY);
+        if (analytics.getPlays(Window.MINUTE) == 0 && analytics.getPlays(Window.HOUR) == 0 && day == 121) {
+            System.out.println("Test 3 passed: " + day);
+        } else {
+            System.err.println("Test 3 failed: " + day);
+        }
+        time[0] += 24 * 3_600_000L;
+        if (analytics.getPlays(Window.DAY) == 0) {
+            System.out.println("Test 4 passed");
+        } else {
+            System.err.println("Test 4 failed");
+        }
+
+        // Concurrent recording loses no plays
+        PlayAnalytics shared = new PlayAnalytics();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 250_000; i++) {
+                    shared.recordPlay(cabinetKey, cabinet, DiscountType.STAFF, true, 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (shared.getPlays(Window.DAY) == 1_000_000 && shared.getGamePlays("C000000001", Window.DAY) == 1_000_000) {
+            System.out.println("Test 5 passed");
+        } else {
+            System.err.println("Test 5 failed: " + shared.getPlays(Window.DAY));
+        }
+    }
+}
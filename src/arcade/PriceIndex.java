@@ -0,0 +1,186 @@
+/*************************************************************************
+
+ File: PriceIndex.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Order statistic index over game prices, kept up to date
+ by Arcade as games are added so the median, percentiles
+ and price range counts never need to re-sort or box the
+ catalogue
+
+
+ Data Structure reasoning:
+ Prices are held in a sorted primitive int array,
+ inserting uses a binary search and one array copy,
+ O(n) but the catalogue changes rarely, while every
+ query is O(1) (median, percentile) or O(log n)
+ (range counts) with no allocation
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import java.util.Arrays;
+
+public class PriceIndex {
+
+    // Member Variables //
+    private int[] prices;
+    private int size;
+
+    // Constructor //
+    public PriceIndex() {
+        this.prices = new int[16];
+        this.size = 0;
+    }
+
+    // Functions //
+
+    // Inserts a price keeping the array sorted
+    public synchronized void add(int price) {
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+        }
+        int position = upperBound(price);
+        System.arraycopy(prices, position, prices, position + 1, size - position);
+        prices[position] = price;
+        size++;
+    }
+
+    // Removes one occurrence of a price, returns false if absent
+    public synchronized boolean remove(int price) {
+        int position = lowerBound(price);
+        if (position == size || prices[position] != price) {
+            return false;
+        }
+        System.arraycopy(prices, position + 1, prices, position, size - position - 1);
+        size--;
+        return true;
+    }
+
+    // Middle price, or the mean of the 2 middle prices
+    // when there's an even number, 0 if empty
+    public synchronized int median() {
+        return median(prices, size);
+    }
+
+    // Same rule over the first size prices of any sorted
+    // array, e.g. several indexes' prices merged
+    static int median(int[] sorted, int size) {
+        if (size == 0) {
+            return 0;
+        }
+        if (size % 2 == 1) {
+            return sorted[size / 2];
+        }
+        return (int) (((long) sorted[size / 2 - 1] + sorted[size / 2]) / 2);
+    }
+
+    // Nearest rank percentile, fraction between 0 and 1
+    // e.g. 0.9 returns the price 90% of games are at or below
+    public synchronized int percentile(double fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1.");
+        }
+        if (size == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * size);
+        return prices[Math.max(0, rank - 1)];
+    }
+
+    // Number of prices between min and max inclusive
+    public synchronized int countInRange(int min, int max) {
+        if (min > max) {
+            return 0;
+        }
+        return upperBound(max) - lowerBound(min);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // Sorted copy of every price
+    public synchronized int[] toArray() {
+        return Arrays.copyOf(prices, size);
+    }
+
+    // First position holding a value >= price
+    private int lowerBound(int price) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] < price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First position holding a value > price
+    private int upperBound(int price) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (prices[mid] <= price) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Test harness //
+    public static void main(String[] args) {
+        System.out.println("\nPriceIndex Tests:");
+
+        PriceIndex index = new PriceIndex();
+        int[] input = {500, 100, 300, 200, 400, 300};
+        for (int price : input) {
+            index.add(price);
+        }
+
+        // Even size median
+        // Expected outcome: 300
+        if (index.median() == 300) {
+            System.out.println("Test 1 passed: " + Arrays.toString(index.toArray()));
+        } else {
+            System.err.println("Test 1 failed: " + index.median());
+        }
+
+        // Percentiles
+        // Expected outcome: 100, 300, 500
+        if (index.percentile(0) == 100 && index.percentile(0.5) == 300 && index.percentile(1) == 500) {
+            System.out.println("Test 2 passed");
+        } else {
+            System.err.println("Test 2 failed");
+        }
+
+        // Range counts
+        // Expected outcome: 4
+        if (index.countInRange(200, 400) == 4) {
+            System.out.println("Test 3 passed");
+        } else {
+            System.err.println("Test 3 failed: " + index.countInRange(200, 400));
+        }
+
+        // Removal then odd size median
+        // Expected outcome: 300
+        if (index.remove(500) && !index.remove(999) && index.median() == 300) {
+            System.out.println("Test 4 passed: " + Arrays.toString(index.toArray()));
+        } else {
+            System.err.println("Test 4 failed");
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*************************************************************************
+
+ File: RevenueLedger.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Accounting ledger for an Arcade's revenue, turned on with
+ Arcade.enableLedger, every charge is posted in long pence
+ to its game, its customer and the day it was made (UTC),
+ so a year of plays across a busy estate never wraps
+ Revenue already taken when the ledger starts, and revenue
+ restored from a snapshot or journal, has no game or
+ customer and is posted as unattributed
+ reconcile() checks the subtotals sum to the headline
+ revenue, it is exact once plays have stopped, during plays
+ a charge may be counted by one total and not yet another
+
+
+ Data Structure reasoning:
+ Every total is a LongAdder, striped per thread, so tills
+ posting to the same game or day never contend and the
+ ledger adds no locks to a play
+ Game and customer subtotals are LongKeyMaps keyed by
+ CompactId, days are keyed by epoch day, and the current
+ day's subtotal is cached, so posting a charge is 2 map
+ reads and 4 adds with no allocation once a key is known
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import money.Money;
+import validation.CompactId;
+import validation.IdValidator;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class RevenueLedger {
+
+    // Member Variables //
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final LongSupplier clock;
+    private final LongAdder total;
+    private final LongAdder unattributed;
+    private final LongKeyMap<LongAdder> byGame;
+    private final LongKeyMap<LongAdder> byCustomer;
+    private final LongKeyMap<LongAdder> byDay;
+    private volatile Day currentDay;
+
+    // Constructor //
+    // clock returns the time in milliseconds, openingBalance
+    // is revenue taken before the ledger started
+    RevenueLedger(LongSupplier clock, long openingBalance) {
+        this.clock = clock;
+        this.total = new LongAdder();
+        this.unattributed = new LongAdder();
+        this.byGame = new LongKeyMap<>();
+        this.byCustomer = new LongKeyMap<>();
+        this.byDay = new LongKeyMap<>();
+        postUnattributed(openingBalance);
+    }
+
+    // Functions //
+
+    // --- POSTING --- //
+
+    void postCharge(long customerKey, long gameKey, int amount) {
+        postCharge(clock.getAsLong(), customerKey, gameKey, amount);
+    }
+
+    // As above at a time already read from the clock, so a
+    // batch of plays reads it once
+    void postCharge(long now, long customerKey, long gameKey, int amount) {
+        adder(byGame, gameKey).add(amount);
+        adder(byCustomer, customerKey).add(amount);
+        dayAdder(now).add(amount);
+        total.add(amount);
+    }
+
+    // Revenue with no game or customer
+    void postUnattributed(long amount) {
+        if (amount != 0) {
+            unattributed.add(amount);
+            total.add(amount);
+        }
+    }
+
+    long now() {
+        return clock.getAsLong();
+    }
+
+    private static LongAdder adder(LongKeyMap<LongAdder> totals, long key) {
+        LongAdder adder = totals.get(key);
+        if (adder == null) {
+            LongAdder created = new LongAdder();
+            LongAdder existing = totals.putIfAbsent(key, created);
+            adder = existing != null ? existing : created;
+        }
+        return adder;
+    }
+
+    // Today's subtotal is cached, the map is only read when
+    // the day changes
+    private LongAdder dayAdder(long now) {
+        long epochDay = Math.floorDiv(now, DAY_MILLIS);
+        Day day = currentDay;
+        if (day != null && day.epochDay == epochDay) {
+            return day.revenue;
+        }
+        // Days are keyed from 0, the map takes no negatives
+        LongAdder revenue = adder(byDay, epochDay - Long.MIN_VALUE / DAY_MILLIS);
+        // Plays stamped before midnight don't move the cache back
+        if (day == null || day.epochDay < epochDay) {
+            currentDay = new Day(epochDay, revenue);
+        }
+        return revenue;
+    }
+
+    // --- RECONCILIATION --- //
+
+    // Checks every subtotal against headline, the arcade's
+    // revenue, run once plays have stopped for an exact answer
+    public Reconciliation reconcile(long headline) {
+        long unattributed = this.unattributed.sum();
+        return new Reconciliation(headline, total.sum(), unattributed,
+                sum(byGame) + unattributed, sum(byCustomer) + unattributed, sum(byDay) + unattributed);
+    }
+
+    private static long sum(LongKeyMap<LongAdder> totals) {
+        long[] sum = {0};
+        totals.forEach((key, adder) -> sum[0] = Math.addExact(sum[0], adder.sum()));
+        return sum[0];
+    }
+
+    // Accessors //
+
+    // Everything posted, including unattributed revenue
+    public long getTotal() {return total.sum();}
+
+    public long getUnattributed() {return unattributed.sum();}
+
+    // Revenue from one game, 0 for unknown games
+    public long getGameRevenue(String gameID) {
+        LongAdder adder = byGame.get(CompactId.encodeGameId(gameID));
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // Revenue from one customer, 0 for unknown customers
+    public long getCustomerRevenue(String customerID) {
+        LongAdder adder = byCustomer.get(CompactId.encodeCustomerId(customerID));
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // Revenue taken on one day, UTC
+    public long getDayRevenue(LocalDate date) {
+        LongAdder adder = byDay.get(date.toEpochDay() - Long.MIN_VALUE / DAY_MILLIS);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    // Revenue per game ID, sorted by ID
+    public Map<String, Long> getRevenueByGame() {
+        Map<String, Long> revenue = new TreeMap<>();
+        byGame.forEach((key, adder) -> revenue.put(CompactId.decode(key, IdValidator.GAME_ID_LENGTH), adder.sum()));
+        return Collections.unmodifiableMap(revenue);
+    }
+
+    // Revenue per customer ID, sorted by ID
+    public Map<String, Long> getRevenueByCustomer() {
+        Map<String, Long> revenue = new TreeMap<>();
+        byCustomer.forEach((key, adder) ->
+                revenue.put(CompactId.decode(key, IdValidator.CUSTOMER_ID_LENGTH), adder.sum()));
+        return Collections.unmodifiableMap(revenue);
+    }
+
+    // Revenue per day, oldest first
+    public Map<LocalDate, Long> getRevenueByDay() {
+        Map<LocalDate, Long> revenue = new TreeMap<>();
+        byDay.forEach((key, adder) ->
+                revenue.put(LocalDate.ofEpochDay(key + Long.MIN_VALUE / DAY_MILLIS), adder.sum()));
+        return Collections.unmodifiableMap(revenue);
+    }
+
+    // Cached subtotal for the latest day posted to
+    private static final class Day {
+        private final long epochDay;
+        private final LongAdder revenue;
+
+        private Day(long epochDay, LongAdder revenue) {
+            this.epochDay = epochDay;
+            this.revenue = revenue;
+        }
+    }
+
+    // Result of reconcile, every total includes unattributed
+    // revenue so each should equal the headline
+    public static final class Reconciliation {
+        private final long headline;
+        private final long ledgerTotal;
+        private final long unattributed;
+        private final long gameTotal;
+        private final long customerTotal;
+        private final long dayTotal;
+
+        private Reconciliation(long headline, long ledgerTotal, long unattributed,
+                               long gameTotal, long customerTotal, long dayTotal) {
+            this.headline = headline;
+            this.ledgerTotal = ledgerTotal;
+            this.unattributed = unattributed;
+            this.gameTotal = gameTotal;
+            this.customerTotal = customerTotal;
+            this.dayTotal = dayTotal;
+        }
+
+        // True if every total agrees with the headline
+        public boolean isBalanced() {
+            return ledgerTotal == headline && gameTotal == headline
+                    && customerTotal == headline && dayTotal == headline;
+        }
+
+        // Accessors //
+
+        public long getHeadline() {return headline;}
+
+        public long getLedgerTotal() {return ledgerTotal;}
+
+        public long getUnattributed() {return unattributed;}
+
+        public long getGameTotal() {return gameTotal;}
+
+        public long getCustomerTotal() {return customerTotal;}
+
+        public long getDayTotal() {return dayTotal;}
+
+        // Text report
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder("--- LEDGER RECONCILIATION ---\n");
+            Money.appendMoney(report.append("Headline revenue = "), headline).append('\n');
+            Money.appendMoney(report.append("Ledger total = "), ledgerTotal);
+            Money.appendMoney(report.append(", unattributed = "), unattributed).append('\n');
+            Money.appendMoney(report.append("By game = "), gameTotal);
+            Money.appendMoney(report.append(", by customer = "), customerTotal);
+            Money.appendMoney(report.append(", by day = "), dayTotal).append('\n');
+            report.append(isBalanced() ? "Balanced" : "NOT BALANCED").append('\n');
+            return report.toString();
+        }
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws InterruptedException {
+        System.out.println("\nRevenueLedger Tests:");
+
+        long[] time = {0};
+        RevenueLedger ledger = new RevenueLedger(() -> time[0], 500);
+        long customer = CompactId.encodeCustomerId("LEDG01");
+        long game = CompactId.encodeGameId("CB00000001");
+
+        // Subtotals per game, customer and day
+        // Expected outcome: game 300, customer 300, 2 days
+        ledger.postCharge(customer, game, 100);
+        time[0] = DAY_MILLIS + 5;
+        ledger.postCharge(customer, game, 200);
+        if (ledger.getGameRevenue("CB00000001") == 300 && ledger.getCustomerRevenue("LEDG01") == 300
+                && ledger.getDayRevenue(LocalDate.ofEpochDay(1)) == 200 && ledger.getRevenueByDay().size() == 2
+                && ledger.getTotal() == 800) {
+            System.out.println("Test 1 passed: " + ledger.getRevenueByDay());
+        } else {
+            System.err.println("Test 1 failed: " + ledger.getRevenueByDay());
+        }
+
+        // Reconciles against the matching headline only
+        if (ledger.reconcile(800).isBalanced() && !ledger.reconcile(801).isBalanced()) {
+            System.out.println("Test 2 passed");
+        } else {
+            System.err.println("Test 2 failed:\n" + ledger.reconcile(800));
+        }
+
+        // Totals past the int range don't wrap
+        // Expected outcome: £42949672.94
+        RevenueLedger large = new RevenueLedger(() -> 0, 0);
+        large.postCharge(customer, game, Integer.MAX_VALUE);
+        large.postCharge(customer, game, Integer.MAX_VALUE);
+        if (large.getGameRevenue("CB00000001") == 2L * Integer.MAX_VALUE && large.reconcile(2L * Integer.MAX_VALUE).isBalanced()) {
+            System.out.println("Test 3 passed: " + Money.format(large.getTotal()));
+        } else {
+            System.err.println("Test 3 failed: " + Money.format(large.getTotal()));
+        }
+
+        // Concurrent posting balances once finished
+        RevenueLedger shared = new RevenueLedger(System::currentTimeMillis, 0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long key = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 250_000; i++) {
+                    shared.postCharge(key, game, 3);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        RevenueLedger.Reconciliation reconciliation = shared.reconcile(3_000_000);
+        if (reconciliation.isBalanced()) {
+            System.out.println("Test 4 passed");
+        } else {
+            System.err.println("Test 4 failed:\n" + reconciliation);
+        }
+    }
+}
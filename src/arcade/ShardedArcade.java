@@ -0,0 +1,607 @@
+/*************************************************************************
+
+ File: ShardedArcade.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Hosts many sites in one process, each site is an Arcade
+ shard with its own games and customers
+ Customers belong to a home shard, chosen by a hash of
+ their ID unless placed explicitly, and a cross-shard
+ directory finds any customer's home, games are placed the
+ same way and found through a game directory
+ A play is charged at the customer's home shard for a game
+ from any shard, so revenue is taken by the home site
+ Every shard runs on its own single-threaded executor,
+ so sites never contend with each other and a shard's
+ state only ever changes on its own thread
+ Aggregate queries (richest customer, median price, game
+ counts, revenue) scatter to every shard and gather the
+ answers
+
+
+ Data Structure reasoning:
+ The directories are LongKeyMaps keyed by CompactId, read
+ lock-free by any caller, so routing a play is 2 lookups
+ before it's handed to its shard
+ Each shard's work all runs on its one thread, so its
+ plays never contend with each other, and each shard's
+ work queue keeps its plays in the order they were
+ submitted
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import customer.Customer;
+import customer.DiscountType;
+import exceptions.InvalidCustomerException;
+import exceptions.InvalidGameIdException;
+import validation.CompactId;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+public class ShardedArcade implements Closeable {
+
+    // Member Variables //
+    private final String name;
+    private final Arcade[] shards;
+    private final ExecutorService[] executors;
+    // Home shard of every customer and game
+    private final LongKeyMap<Integer> customerHomes;
+    private final LongKeyMap<Integer> gameHomes;
+    // Games ready to play, from every shard
+    private final LongKeyMap<ArcadeGame> gameDirectory;
+    // Held while adding, so a home is only published once its
+    // shard has the customer or game and IDs stay unique
+    private final Object customerLock = new Object();
+    private final Object gameLock = new Object();
+
+    // Constructor //
+    // Shards are named "<name> #<shard>"
+    public ShardedArcade(String name, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1.");
+        }
+        this.name = name;
+        this.shards = new Arcade[shardCount];
+        this.executors = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Arcade(name + " #" + i);
+            String threadName = "arcade-shard-" + i;
+            executors[i] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.customerHomes = new LongKeyMap<>();
+        this.gameHomes = new LongKeyMap<>();
+        this.gameDirectory = new LongKeyMap<>();
+    }
+
+    // Functions //
+
+    // ADD //
+    // Adds the customer to the shard their ID hashes to
+    public void addCustomer(Customer customer) throws InvalidCustomerException {
+        addCustomer(customer, shardOf(CompactId.encodeCustomerId(customer.getId())));
+    }
+
+    // Adds the customer with the given home shard, IDs are
+    // unique across every shard
+    public void addCustomer(Customer customer, int shard) throws InvalidCustomerException {
+        checkShard(shard);
+        long key = CompactId.encodeCustomerId(customer.getId());
+        if (key == CompactId.INVALID) {
+            throw new InvalidCustomerException("Invalid customer ID.");
+        }
+        synchronized (customerLock) {
+            if (customerHomes.get(key) != null) {
+                throw new InvalidCustomerException("Customer ID already exists.");
+            }
+            await(executors[shard].submit(() -> {
+                shards[shard].addCustomer(customer);
+                return null;
+            }), InvalidCustomerException.class);
+            // Only once the shard has them, a failed add claims nothing
+            customerHomes.putIfAbsent(key, shard);
+        }
+    }
+
+    // Adds the game to the shard its ID hashes to
+    public void addArcadeGame(ArcadeGame game) throws InvalidGameIdException {
+        addArcadeGame(game, shardOf(CompactId.encodeGameId(game.getId())));
+    }
+
+    // Adds the game to the given shard, IDs are unique across
+    // every shard
+    public void addArcadeGame(ArcadeGame game, int shard) throws InvalidGameIdException {
+        checkShard(shard);
+        long key = CompactId.encodeGameId(game.getId());
+        if (key == CompactId.INVALID) {
+            throw new InvalidGameIdException("Invalid game ID.");
+        }
+        synchronized (gameLock) {
+            if (gameHomes.get(key) != null) {
+                throw new InvalidGameIdException("Game ID already exists.");
+            }
+            // The shard prepares the game before the directory
+            // makes it playable from other shards
+            await(executors[shard].submit(() -> {
+                shards[shard].addArcadeGame(game);
+                return null;
+            }), InvalidGameIdException.class);
+            // Only once the shard has it, a failed add claims nothing
+            gameHomes.putIfAbsent(key, shard);
+            gameDirectory.putIfAbsent(key, game);
+        }
+    }
+
+    // Adds every game to the shard its ID hashes to, each
+    // shard takes its share as one new catalogue
+    public void addArcadeGames(Collection<? extends ArcadeGame> games) throws InvalidGameIdException {
+        List<List<ArcadeGame>> perShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            perShard.add(new ArrayList<>());
+        }
+        for (ArcadeGame game : games) {
+            perShard.get(shardOf(CompactId.encodeGameId(game.getId()))).add(game);
+        }
+        for (int shard = 0; shard < shards.length; shard++) {
+            if (!perShard.get(shard).isEmpty()) {
+                addArcadeGames(perShard.get(shard), shard);
+            }
+        }
+    }
+
+    // Adds every game to the given shard as one new catalogue,
+    // one trip to the shard's thread, all or none
+    public void addArcadeGames(Collection<? extends ArcadeGame> games, int shard) throws InvalidGameIdException {
+        checkShard(shard);
+        synchronized (gameLock) {
+            Set<Long> keys = new HashSet<>();
+            for (ArcadeGame game : games) {
+                long key = CompactId.encodeGameId(game.getId());
+                if (key == CompactId.INVALID) {
+                    throw new InvalidGameIdException("Invalid game ID.");
+                }
+                if (gameHomes.get(key) != null || !keys.add(key)) {
+                    throw new InvalidGameIdException("Game ID already exists.");
+                }
+            }
+            await(executors[shard].submit(() -> {
+                shards[shard].addArcadeGames(games);
+                return null;
+            }), InvalidGameIdException.class);
+            for (ArcadeGame game : games) {
+                long key = CompactId.encodeGameId(game.getId());
+                gameHomes.putIfAbsent(key, shard);
+                gameDirectory.putIfAbsent(key, game);
+            }
+        }
+    }
+
+    // GET //
+    public Customer getCustomer(String customerID) throws InvalidCustomerException {
+        Integer home = customerHomes.get(CompactId.encodeCustomerId(customerID));
+        if (home == null) {
+            throw new InvalidCustomerException("Customer ID doesn't exist.");
+        }
+        return shards[home].getCustomer(customerID);
+    }
+
+    public ArcadeGame getArcadeGame(String gameID) throws InvalidGameIdException {
+        ArcadeGame game = gameDirectory.get(CompactId.encodeGameId(gameID));
+        if (game == null) {
+            throw new InvalidGameIdException("Game ID doesn't exist.");
+        }
+        return game;
+    }
+
+    // Home shard of a customer, -1 if unknown
+    public int getHomeShard(String customerID) {
+        Integer home = customerHomes.get(CompactId.encodeCustomerId(customerID));
+        return home == null ? -1 : home;
+    }
+
+    // --- TRANSACTIONS --- //
+
+    // Queues a play at the customer's home shard, completes
+    // with its result once the shard has applied it
+    public CompletableFuture<TransactionResult> submitTransaction(String customerID, String gameID, boolean peak) {
+        long customerKey = CompactId.encodeCustomerId(customerID);
+        long gameKey = CompactId.encodeGameId(gameID);
+        Integer home = customerHomes.get(customerKey);
+        if (home == null) {
+            return CompletableFuture.completedFuture(TransactionResult.INVALID_CUSTOMER);
+        }
+        ArcadeGame game = gameDirectory.get(gameKey);
+        if (game == null) {
+            return CompletableFuture.completedFuture(TransactionResult.INVALID_GAME);
+        }
+        Arcade shard = shards[home];
+        return CompletableFuture.supplyAsync(
+                () -> shard.tryProcessTransaction(customerKey, gameKey, game, peak), executors[home]);
+    }
+
+    // Plays and waits for the result
+    public TransactionResult tryProcessTransaction(String customerID, String gameID, boolean peak) {
+        return submitTransaction(customerID, gameID, peak).join();
+    }
+
+    // Adds funds at the customer's home shard and waits
+    public void addFunds(String customerID, int amount) throws InvalidCustomerException {
+        Integer home = customerHomes.get(CompactId.encodeCustomerId(customerID));
+        if (home == null) {
+            throw new InvalidCustomerException("Customer ID doesn't exist.");
+        }
+        await(executors[home].submit(() -> {
+            shards[home].getCustomer(customerID).addFunds(amount);
+            return null;
+        }), InvalidCustomerException.class);
+    }
+
+    // --- SCATTER-GATHER --- //
+
+    // Runs query on every shard's own thread, answers in shard order
+    public <T> List<T> scatter(Function<Arcade, T> query) {
+        List<Future<T>> futures = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            Arcade shard = shards[i];
+            futures.add(executors[i].submit(() -> query.apply(shard)));
+        }
+        List<T> answers = new ArrayList<>(shards.length);
+        for (Future<T> future : futures) {
+            answers.add(await(future, RuntimeException.class));
+        }
+        return answers;
+    }
+
+    // Customer with the highest balance on any shard, null if
+    // there are no customers
+    public Customer findRichestCustomer() {
+        Customer richest = null;
+        for (Customer candidate : scatter(Arcade::findRichestCustomer)) {
+            // Ties go to the higher ID, as in a single Arcade
+            if (candidate != null && (richest == null || candidate.getBalance() > richest.getBalance()
+                    || (candidate.getBalance() == richest.getBalance()
+                    && candidate.getId().compareTo(richest.getId()) > 0))) {
+                richest = candidate;
+            }
+        }
+        return richest;
+    }
+
+    // Median price across every shard's games, 0 if none,
+    // selected from the shards' sorted prices without merging
+    public int getMedianGamePrice() {
+        List<int[]> shardPrices = scatter(Arcade::getGamePrices);
+        int total = 0;
+        for (int[] prices : shardPrices) {
+            total += prices.length;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        if (total % 2 == 1) {
+            return selectPrice(shardPrices, total / 2);
+        }
+        return (int) (((long) selectPrice(shardPrices, total / 2 - 1) + selectPrice(shardPrices, total / 2)) / 2);
+    }
+
+    // The rank'th smallest price, from 0, across several sorted
+    // arrays, a binary search over price values counting the
+    // prices at or below each, O(shards log n) per step
+    static int selectPrice(List<int[]> sortedPrices, int rank) {
+        long low = Integer.MAX_VALUE;
+        long high = Integer.MIN_VALUE;
+        for (int[] prices : sortedPrices) {
+            if (prices.length > 0) {
+                low = Math.min(low, prices[0]);
+                high = Math.max(high, prices[prices.length - 1]);
+            }
+        }
+        // Smallest price with more than rank prices at or below it
+        while (low < high) {
+            long middle = (low + high) >> 1;
+            long atOrBelow = 0;
+            for (int[] prices : sortedPrices) {
+                atOrBelow += countAtOrBelow(prices, middle);
+            }
+            if (atOrBelow > rank) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return (int) low;
+    }
+
+    private static int countAtOrBelow(int[] sorted, long price) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] <= price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Cabinet, Active and VR game counts across every shard
+    public int[] countArcadeGames() {
+        int[] counts = new int[GameType.values().length];
+        for (int[] shardCounts : scatter(Arcade::countArcadeGames)) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += shardCounts[i];
+            }
+        }
+        return counts;
+    }
+
+    // Revenue taken by every shard
+    public long getTotalRevenue() {
+        long revenue = 0;
+        for (long shardRevenue : scatter(Arcade::getTotalRevenue)) {
+            revenue += shardRevenue;
+        }
+        return revenue;
+    }
+
+    // Stops every shard's executor, queued work is finished
+    @Override
+    public void close() {
+        for (ExecutorService executor : executors) {
+            executor.shutdown();
+        }
+        boolean interrupted = false;
+        for (ExecutorService executor : executors) {
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Fibonacci hash of a CompactId, invalid IDs go to shard 0
+    private int shardOf(long key) {
+        if (key < 0) {
+            return 0;
+        }
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) Long.remainderUnsigned(hash ^ (hash >>> 32), shards.length);
+    }
+
+    private void checkShard(int shard) {
+        if (shard < 0 || shard >= shards.length) {
+            throw new IllegalArgumentException("No shard " + shard + ", there are " + shards.length + ".");
+        }
+    }
+
+    // Waits for a shard's answer, rethrowing the shard's
+    // failure as itself when it's of the expected type
+    private static <T, E extends Exception> T await(Future<T> future, Class<E> expected) throws E {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    // The shard finishes the work regardless
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (expected.isInstance(cause)) {
+                        throw expected.cast(cause);
+                    }
+                    if (cause instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    if (cause instanceof Error error) {
+                        throw error;
+                    }
+                    throw new IllegalStateException("Shard failed.", cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Accessors //
+
+    public String getName() {return name;}
+
+    public int getShardCount() {return shards.length;}
+
+    // A shard, for reads only, changes must go through the
+    // ShardedArcade so they run on the shard's thread
+    public Arcade getShard(int shard) {
+        checkShard(shard);
+        return shards[shard];
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws Exception {
+        System.out.println("\nShardedArcade Tests:");
+
+        // Same games and customers in one arcade and 8 shards
+        Arcade single = new Arcade("Single");
+        Random random = new Random(23);
+        List<String> customerIDs = new ArrayList<>();
+        List<String> gameIDs = new ArrayList<>();
+        try (ShardedArcade estate = new ShardedArcade("Estate", 8)) {
+            for (int i = 0; i < 60; i++) {
+                int price = 50 + random.nextInt(400);
+                String id = String.format("CB%08d", i);
+                ArcadeGame game = switch (i % 3) {
+                    case 0 -> new CabinetGame(id, "Game " + i, price, i % 2 == 0);
+                    case 1 -> new ActiveGame(id.replace("CB", "AX"), "Game " + i, price, 12 + i % 7);
+                    default -> new VirtualRealityGame(id.replace("CB", "AV"), "Game " + i, price, 12,
+                            EquipmentType.HEADSET_ONLY);
+                };
+                single.addArcadeGame(game);
+                estate.addArcadeGame(game);
+                gameIDs.add(game.getId());
+            }
+            for (int i = 0; i < 2_000; i++) {
+                String id = String.format("S%05d", i);
+                DiscountType discountType = DiscountType.values()[i % 3];
+                int age = 10 + random.nextInt(40);
+                int balance = random.nextInt(5_000);
+                single.addCustomer(new Customer(id, "Customer " + i, age, discountType, balance));
+                estate.addCustomer(new Customer(id, "Customer " + i, age, discountType, balance));
+                customerIDs.add(id);
+            }
+
+            // Customers spread over every shard
+            int[] perShard = new int[estate.getShardCount()];
+            for (String id : customerIDs) {
+                perShard[estate.getHomeShard(id)]++;
+            }
+            boolean spread = true;
+            for (int count : perShard) {
+                spread &= count > 150;
+            }
+            if (spread) {
+                System.out.println("Test 1 passed: " + Arrays.toString(perShard));
+            } else {
+                System.err.println("Test 1 failed: " + Arrays.toString(perShard));
+            }
+
+            // Plays against any shard's game agree with one arcade
+            List<CompletableFuture<TransactionResult>> results = new ArrayList<>();
+            List<TransactionResult> expected = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                String customerID = customerIDs.get(random.nextInt(customerIDs.size()));
+                String gameID = gameIDs.get(random.nextInt(gameIDs.size()));
+                boolean peak = random.nextBoolean();
+                expected.add(single.tryProcessTransaction(customerID, gameID, peak));
+                results.add(estate.submitTransaction(customerID, gameID, peak));
+            }
+            boolean same = true;
+            for (int i = 0; i < results.size(); i++) {
+                same &= results.get(i).join() == expected.get(i);
+            }
+            if (same && estate.getTotalRevenue() == single.getTotalRevenue()) {
+                System.out.println("Test 2 passed: revenue = " + estate.getTotalRevenue());
+            } else {
+                System.err.println("Test 2 failed: revenue = " + estate.getTotalRevenue() + " vs " + single.getTotalRevenue());
+            }
+
+            // Scatter-gather aggregates
+            Customer richest = estate.findRichestCustomer();
+            if (richest.getBalance() == single.findRichestCustomer().getBalance()
+                    && estate.getMedianGamePrice() == single.getMedianGamePrice()
+                    && Arrays.equals(estate.countArcadeGames(), single.countArcadeGames())) {
+                System.out.println("Test 3 passed: richest = " + richest.getId()
+                        + ", median = " + estate.getMedianGamePrice());
+            } else {
+                System.err.println("Test 3 failed");
+            }
+
+            // Directory rejects duplicates across shards
+            try {
+                estate.addCustomer(new Customer("S00001", "Copy", 30, DiscountType.NONE), 0);
+                estate.addCustomer(new Customer("S00001", "Copy", 30, DiscountType.NONE), 1);
+                System.err.println("Test 4 failed");
+            } catch (InvalidCustomerException e) {
+                System.out.println("Test 4 passed: " + e.getMessage());
+            }
+
+            // A shard refusing an add leaves the ID free
+            // Expected outcome: refused on shard 0, added on shard 1
+            estate.getShard(0).addCustomer(new Customer("R00001", "Stray", 30, DiscountType.NONE));
+            try {
+                estate.addCustomer(new Customer("R00001", "Refused", 30, DiscountType.NONE), 0);
+                System.err.println("Test 5 failed: shard 0 accepted a duplicate");
+            } catch (InvalidCustomerException refused) {
+                try {
+                    estate.addCustomer(new Customer("R00001", "Retry", 30, DiscountType.NONE), 1);
+                    if (estate.getHomeShard("R00001") == 1 && estate.getCustomer("R00001").getName().equals("Retry")) {
+                        System.out.println("Test 5 passed: home shard 1");
+                    } else {
+                        System.err.println("Test 5 failed: home shard " + estate.getHomeShard("R00001"));
+                    }
+                } catch (InvalidCustomerException e) {
+                    System.err.println("Test 5 failed: " + e.getMessage());
+                }
+            }
+
+            // Games loaded in bulk, a batch with a duplicate is
+            // refused whole
+            // Expected outcome: 1,000 games on shard 2, none of
+            // the refused batch added
+            List<ArcadeGame> bulk = new ArrayList<>();
+            for (int i = 0; i < 1_000; i++) {
+                bulk.add(new CabinetGame(String.format("CB%08d", 50_000 + i), "Bulk " + i, 100 + i, false));
+            }
+            int before = estate.getShard(2).getGameCatalogue().size();
+            estate.addArcadeGames(bulk, 2);
+            boolean refused = false;
+            try {
+                estate.addArcadeGames(List.of(new CabinetGame("CB00060000", "New", 100, false), bulk.get(0)), 3);
+            } catch (InvalidGameIdException e) {
+                refused = true;
+            }
+            if (estate.getShard(2).getGameCatalogue().size() == before + 1_000
+                    && estate.getArcadeGame("CB00050999").getPrice() == 1_099 && refused
+                    && estate.getShard(3).getGameCatalogue().find("CB00060000") == null) {
+                System.out.println("Test 6 passed: " + (before + 1_000) + " games on shard 2");
+            } else {
+                System.err.println("Test 6 failed");
+            }
+
+            // Ties and medians agree with one arcade
+            // Expected outcome: same richest and median
+            ShardedArcade tied = new ShardedArcade("Tied", 4);
+            Arcade alone = new Arcade("Alone");
+            for (int i = 0; i < 40; i++) {
+                String id = String.format("T%05d", i);
+                tied.addCustomer(new Customer(id, "Tied " + i, 30, DiscountType.NONE, 1_000), i % 4);
+                alone.addCustomer(new Customer(id, "Tied " + i, 30, DiscountType.NONE, 1_000));
+            }
+            for (int i = 0; i < 101; i++) {
+                ArcadeGame game = new CabinetGame(String.format("CB%08d", 70_000 + i), "Median " + i,
+                        (i * 37) % 500 + 1, false);
+                tied.addArcadeGame(game, i % 3);
+                alone.addArcadeGame(game);
+            }
+            boolean medians = tied.getMedianGamePrice() == alone.getMedianGamePrice();
+            tied.addArcadeGame(new CabinetGame("CB00070101", "Even", 10_000, false), 3);
+            alone.addArcadeGame(new CabinetGame("CB00070101", "Even", 10_000, false));
+            medians &= tied.getMedianGamePrice() == alone.getMedianGamePrice();
+            if (tied.findRichestCustomer().getId().equals(alone.findRichestCustomer().getId()) && medians) {
+                System.out.println("Test 7 passed: richest = " + tied.findRichestCustomer().getId()
+                        + ", median = " + tied.getMedianGamePrice());
+            } else {
+                System.err.println("Test 7 failed: richest = " + tied.findRichestCustomer().getId()
+                        + ", median = " + tied.getMedianGamePrice() + " vs " + alone.getMedianGamePrice());
+            }
+            tied.close();
+        }
+    }
+}
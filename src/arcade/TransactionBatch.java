@@ -0,0 +1,155 @@
+/*************************************************************************
+
+ File: TransactionBatch.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ A reusable batch of plays, each a (customer ID, game ID,
+ peak) tuple, passed to Arcade.processTransactions so
+ gateways forwarding plays in micro batches pay for the
+ lookups and revenue update once per batch rather than
+ once per play
+ After processing, results() holds one TransactionResult
+ code per play in the order the plays were added
+
+
+ Data Structure reasoning:
+ Plays are kept in parallel primitive arrays of CompactIds
+ and peak flags, with a byte per result, so a batch is a
+ few arrays that are reused after clear() rather than an
+ object per play
+ The resolved customers and games are scratch arrays owned
+ by the batch, filled in one pass before any charge is made
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import customer.Customer;
+import validation.CompactId;
+
+import java.util.Arrays;
+
+public class TransactionBatch {
+
+    // Member Variables //
+    private long[] customerKeys;
+    private long[] gameKeys;
+    private boolean[] peaks;
+    private byte[] results;
+    private int size;
+
+    // Scratch space used while the batch is processed
+    Customer[] customers;
+    ArcadeGame[] games;
+
+    // Constructors //
+    public TransactionBatch() {
+        this(64);
+    }
+
+    public TransactionBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+        this.customerKeys = new long[capacity];
+        this.gameKeys = new long[capacity];
+        this.peaks = new boolean[capacity];
+        this.results = new byte[capacity];
+        this.customers = new Customer[capacity];
+        this.games = new ArcadeGame[capacity];
+        this.size = 0;
+    }
+
+    // Functions //
+
+    // Adds a play, unknown or invalid IDs are reported in
+    // the results rather than rejected here
+    public void add(String customerID, String gameID, boolean peak) {
+        add(CompactId.encodeCustomerId(customerID), CompactId.encodeGameId(gameID), peak);
+    }
+
+    // Adds a play with IDs already encoded by CompactId
+    public void add(long customerKey, long gameKey, boolean peak) {
+        if (size == customerKeys.length) {
+            grow();
+        }
+        customerKeys[size] = customerKey;
+        gameKeys[size] = gameKey;
+        peaks[size] = peak;
+        size++;
+    }
+
+    // Empties the batch so it can be reused
+    public void clear() {
+        // Drops references so processed plays can be collected
+        Arrays.fill(customers, 0, size, null);
+        Arrays.fill(games, 0, size, null);
+        size = 0;
+    }
+
+    // Outcome of play i after processing
+    public TransactionResult getResult(int i) {
+        checkIndex(i);
+        return TransactionResult.fromCode(results[i]);
+    }
+
+    // Number of plays in the batch that succeeded
+    public int countSuccesses() {
+        int successes = 0;
+        for (int i = 0; i < size; i++) {
+            if (results[i] == TransactionResult.SUCCESS.code()) {
+                successes++;
+            }
+        }
+        return successes;
+    }
+
+    private void grow() {
+        int capacity = customerKeys.length * 2;
+        customerKeys = Arrays.copyOf(customerKeys, capacity);
+        gameKeys = Arrays.copyOf(gameKeys, capacity);
+        peaks = Arrays.copyOf(peaks, capacity);
+        results = Arrays.copyOf(results, capacity);
+        customers = Arrays.copyOf(customers, capacity);
+        games = Arrays.copyOf(games, capacity);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for size " + size);
+        }
+    }
+
+    // Accessors //
+
+    public int size() {
+        return size;
+    }
+
+    // One TransactionResult code per play, only the first
+    // size() entries are meaningful
+    public byte[] results() {
+        return results;
+    }
+
+    long getCustomerKey(int i) {
+        return customerKeys[i];
+    }
+
+    long getGameKey(int i) {
+        return gameKeys[i];
+    }
+
+    boolean isPeak(int i) {
+        return peaks[i];
+    }
+
+    void setResult(int i, TransactionResult result) {
+        results[i] = result.code();
+    }
+}
@@ -0,0 +1,658 @@
+/*************************************************************************
+
+ File: TransactionJournal.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Append only write-ahead journal of customer and balance
+ changes (new customers, added funds and charges) so the
+ day's activity survives a crash, recovery replays the
+ journal on top of the state loaded at startup
+ Records are group committed, buffered in memory and
+ written with a single fsync per batch, so the fsync cost
+ is shared across thousands of plays, a background flush
+ makes sure quiet periods still reach disk promptly
+ A record is only durable once its commit's fsync is done,
+ until then a crash loses it, callers that acknowledge a
+ change to someone else call awaitDurable first, which
+ waits for, or itself runs, the commit covering the
+ caller's records, callers waiting together share it
+ Charges and added funds are buffered in stripes picked by
+ thread, so tills journaling at once don't share a lock,
+ a frame holds its new customers first then each stripe,
+ a customer is only visible to plays once its ADD_CUSTOMER
+ is buffered, so its records never come before it, while
+ one customer's charges and funds may reorder across
+ stripes, which replay adds up to the same balance
+
+
+ File layout (all numbers big endian):
+ frame  payload length, CRC32 of payload, payload
+ record type, customer ID (6 bytes), then
+        ADD_CUSTOMER  age, discount ordinal, balance, name
+        ADD_FUNDS     amount
+        CHARGE        amount
+ A crash mid write leaves a short or corrupt last frame,
+ which recovery ignores and opening for append truncates
+ Snapshots record checkpoint(), the journal length once
+ everything before them is on disk, and recovery replays
+ from there, so records already in the snapshot aren't
+ applied twice
+ A failed write or fsync fails the journal, what reached
+ disk is unknown, so every later record is refused rather
+ than framed on top of it, reopen the file to carry on
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import customer.Customer;
+import customer.DiscountType;
+import exceptions.InvalidCustomerException;
+import validation.IdValidator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+public class TransactionJournal implements Closeable {
+
+    // Member Variables //
+    // Record types
+    private static final byte ADD_CUSTOMER = 1;
+    private static final byte ADD_FUNDS = 2;
+    private static final byte CHARGE = 3;
+
+    private static final int FRAME_HEADER = 2 * Integer.BYTES;
+    private static final int ID_LENGTH = IdValidator.CUSTOMER_ID_LENGTH;
+    private static final DiscountType[] DISCOUNT_TYPES = DiscountType.values();
+
+    // Records per group commit unless flushed sooner
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    // Longest a record waits in memory before the background flush
+    public static final long DEFAULT_FLUSH_MILLIS = 50;
+
+    // Charge and added funds records are a fixed length
+    private static final int BALANCE_RECORD = 1 + ID_LENGTH + Integer.BYTES;
+
+    // Records buffered by the threads that share it,
+    // appended to under its own lock
+    private static final class Stripe {
+        private final ByteBuffer buffer;
+        private int pending;
+        // Number of the commit that will take this stripe's records
+        private long nextCommit = 1;
+
+        private Stripe(int records) {
+            this.buffer = ByteBuffer.allocate(records * BALANCE_RECORD);
+        }
+    }
+
+    private final FileChannel channel;
+    private final int stripeBatch;
+    private final Stripe[] stripes;
+    private final CRC32 checksum;
+    private final ByteBuffer header;
+    private final ScheduledExecutorService flusher;
+    // Fields below are guarded by this
+    private ByteBuffer customers;
+    private int pendingCustomers;
+    private ByteBuffer frame;
+    private long commitNumber;
+    // Highest commit whose fsync is done
+    private volatile long durableCommit;
+    // Commit covering the latest new customer
+    private volatile long customerCommit;
+    private volatile boolean closed;
+    // First write or fsync failure, set once
+    private volatile IOException failure;
+
+    // Constructor //
+    // Use open, which also truncates a torn final frame
+    private TransactionJournal(FileChannel channel, int batchSize, long flushMillis) {
+        this.channel = channel;
+        // Power of 2 stripes, about 2 per core, sharing a batch
+        int stripeCount = 1;
+        while (stripeCount < 2 * Runtime.getRuntime().availableProcessors() && stripeCount < 64) {
+            stripeCount <<= 1;
+        }
+        this.stripeBatch = Math.max(1, batchSize / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            // Room to spare so a full stripe rarely waits on its commit
+            stripes[i] = new Stripe(2 * stripeBatch);
+        }
+        this.checksum = new CRC32();
+        this.header = ByteBuffer.allocate(FRAME_HEADER);
+        this.customers = ByteBuffer.allocate(1024);
+        this.frame = ByteBuffer.allocate(stripeCount * stripes[0].buffer.capacity() + customers.capacity());
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::backgroundFlush, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Functions //
+
+    // Opens a journal for appending, creating it if needed
+    public static TransactionJournal open(Path file) throws IOException {
+        return open(file, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_MILLIS);
+    }
+
+    public static TransactionJournal open(Path file, int batchSize, long flushMillis) throws IOException {
+        if (batchSize < 1 || flushMillis < 1) {
+            throw new IllegalArgumentException("Batch size and flush interval must be positive.");
+        }
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Drop anything after the last complete frame
+        long validLength = scan(channel, 0, null);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return new TransactionJournal(channel, batchSize, flushMillis);
+    }
+
+    // --- APPENDING --- //
+
+    // Serialised with commits, so a frame always holds a
+    // customer before any record made after it was added
+    // Each record method returns the number of the commit
+    // that will take the record, for awaitDurable
+    public synchronized long recordAddCustomer(Customer customer) throws IOException {
+        checkUsable();
+        byte[] name = customer.getName().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + ID_LENGTH + 3 * Integer.BYTES + 1 + name.length;
+        if (customers.remaining() < length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * customers.capacity(), customers.position() + length));
+            customers.flip();
+            customers = grown.put(customers);
+        }
+        customers.put(ADD_CUSTOMER);
+        putId(customers, customer.getId());
+        customers.putInt(customer.getAge());
+        customers.put((byte) customer.getDiscountType().ordinal());
+        customers.putInt(customer.getBalance());
+        customers.putInt(name.length);
+        customers.put(name);
+        long ticket = commitNumber + 1;
+        customerCommit = ticket;
+        if (++pendingCustomers >= stripeBatch) {
+            commit();
+        }
+        return ticket;
+    }
+
+    public long recordAddFunds(String customerId, int amount) throws IOException {
+        return recordBalanceChange(ADD_FUNDS, customerId, amount);
+    }
+
+    public long recordCharge(String customerId, int amount) throws IOException {
+        return recordBalanceChange(CHARGE, customerId, amount);
+    }
+
+    // Appends to this thread's stripe, group commits once the
+    // stripe holds a full batch
+    private long recordBalanceChange(byte type, String customerId, int amount) throws IOException {
+        Stripe stripe = stripeOf(Thread.currentThread());
+        while (true) {
+            checkUsable();
+            long ticket = 0;
+            boolean full;
+            synchronized (stripe) {
+                if (stripe.buffer.remaining() >= BALANCE_RECORD) {
+                    stripe.buffer.put(type);
+                    putId(stripe.buffer, customerId);
+                    stripe.buffer.putInt(amount);
+                    ticket = stripe.nextCommit;
+                    full = ++stripe.pending >= stripeBatch;
+                } else {
+                    full = true;
+                }
+            }
+            // Committed outside the stripe lock, commit takes every stripe's
+            if (full) {
+                commit();
+            }
+            if (ticket != 0) {
+                return ticket;
+            }
+        }
+    }
+
+    private Stripe stripeOf(Thread thread) {
+        return stripes[(int) thread.getId() & (stripes.length - 1)];
+    }
+
+    // --- DURABILITY --- //
+
+    // Waits until the commit a record method returned is on
+    // disk, running it here if no other thread has yet, throws
+    // if the journal failed before it got there
+    public void awaitDurable(long ticket) throws IOException {
+        if (durableCommit >= ticket) {
+            return;
+        }
+        synchronized (this) {
+            // Whoever held the lock may have committed it already
+            if (durableCommit < ticket) {
+                commit();
+            }
+        }
+    }
+
+    // Waits until every record this thread has made, and every
+    // new customer so far, is on disk
+    public void awaitDurable() throws IOException {
+        Stripe stripe = stripeOf(Thread.currentThread());
+        long ticket;
+        synchronized (stripe) {
+            // Without pending records only an fsync in progress matters
+            ticket = stripe.pending > 0 ? stripe.nextCommit : stripe.nextCommit - 1;
+        }
+        awaitDurable(Math.max(ticket, customerCommit));
+    }
+
+    // Writes and fsyncs every buffered record as one frame
+    public synchronized void commit() throws IOException {
+        checkUsable();
+        long number = ++commitNumber;
+        // New customers first, then each stripe
+        frame.clear();
+        ensureFrame(customers.position());
+        customers.flip();
+        frame.put(customers);
+        customers.clear();
+        pendingCustomers = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                ensureFrame(stripe.buffer.position());
+                stripe.buffer.flip();
+                frame.put(stripe.buffer);
+                stripe.buffer.clear();
+                stripe.pending = 0;
+                stripe.nextCommit = number + 1;
+            }
+        }
+        if (frame.position() == 0) {
+            durableCommit = number;
+            return;
+        }
+
+        frame.flip();
+        checksum.reset();
+        checksum.update(frame.duplicate());
+        header.clear();
+        header.putInt(frame.remaining());
+        header.putInt((int) checksum.getValue());
+        header.flip();
+        try {
+            while (header.hasRemaining() || frame.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, frame});
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        durableCommit = number;
+    }
+
+    // Grows the frame to take length more bytes
+    private void ensureFrame(int length) {
+        if (frame.remaining() < length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * frame.capacity(), frame.position() + length));
+            frame.flip();
+            frame = grown.put(frame);
+        }
+    }
+
+    // Commits everything recorded so far and returns the
+    // journal's length, the position replay should resume
+    // from for a snapshot taken now
+    public synchronized long checkpoint() throws IOException {
+        commit();
+        return channel.position();
+    }
+
+    // True once a write or fsync has failed
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flusher.shutdownNow();
+        try {
+            if (failure == null) {
+                commit();
+            }
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    // Refuses records once closed or failed
+    private void checkUsable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal failed, no further records are accepted.", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal is closed.");
+        }
+    }
+
+    private static void putId(ByteBuffer buffer, String customerId) {
+        for (int i = 0; i < ID_LENGTH; i++) {
+            buffer.put((byte) customerId.charAt(i));
+        }
+    }
+
+    private synchronized void backgroundFlush() {
+        try {
+            // A failure is reported once, by the flush that hit it
+            if (!closed && failure == null) {
+                commit();
+            }
+        } catch (IOException e) {
+            System.err.println("Journal flush failed: " + e.getMessage());
+        }
+    }
+
+    // --- RECOVERY --- //
+
+    // Replays a journal on top of the arcade's current state
+    // returns the number of records applied
+    public static long replay(Path file, Arcade arcade) throws IOException {
+        return replay(file, arcade, 0);
+    }
+
+    // As above from a checkpoint, the frames before it are
+    // already in the state being replayed onto
+    public static long replay(Path file, Arcade arcade, long fromPosition) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] applied = {0};
+            scan(channel, fromPosition, payload -> applied[0] += apply(payload, arcade));
+            return applied[0];
+        }
+    }
+
+    // Applies every record in one frame
+    private static int apply(ByteBuffer payload, Arcade arcade) {
+        int count = 0;
+        byte[] id = new byte[ID_LENGTH];
+        while (payload.hasRemaining()) {
+            byte type = payload.get();
+            payload.get(id);
+            String customerId = new String(id, StandardCharsets.US_ASCII);
+
+            switch (type) {
+                case ADD_CUSTOMER -> {
+                    int age = payload.getInt();
+                    DiscountType discountType = DISCOUNT_TYPES[payload.get()];
+                    int balance = payload.getInt();
+                    byte[] name = new byte[payload.getInt()];
+                    payload.get(name);
+                    Customer customer = new Customer(customerId, new String(name, StandardCharsets.UTF_8),
+                            age, discountType);
+                    customer.restoreBalance(balance);
+                    arcade.addCustomer(customer);
+                }
+                case ADD_FUNDS -> arcade.getCustomer(customerId).addFunds(payload.getInt());
+                case CHARGE -> {
+                    int amount = payload.getInt();
+                    Customer customer = arcade.getCustomer(customerId);
+                    customer.restoreBalance(customer.getBalance() - amount);
+                    arcade.restoreRevenue(amount);
+                }
+                default -> throw new IllegalStateException("Unknown journal record type: " + type);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    // Frame handler used by scan
+    @FunctionalInterface
+    private interface FrameHandler {
+        void accept(ByteBuffer payload);
+    }
+
+    // Walks every complete, checksum valid frame from start,
+    // a frame boundary, returns the length they reach
+    private static long scan(FileChannel channel, long start, FrameHandler handler) throws IOException {
+        long size = channel.size();
+        if (size <= start) {
+            return start;
+        }
+        // Frames are read in chunks so files over 2GB still replay
+        CRC32 crc = new CRC32();
+        long position = start;
+        while (position + FRAME_HEADER <= size) {
+            long chunk = Math.min(size - position, Integer.MAX_VALUE);
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, chunk);
+            int offset = 0;
+            while (offset + FRAME_HEADER <= chunk) {
+                int length = mapped.getInt(offset);
+                int expected = mapped.getInt(offset + Integer.BYTES);
+                if (length <= 0 || offset + FRAME_HEADER + (long) length > chunk) {
+                    break;
+                }
+                ByteBuffer payload = mapped.slice(offset + FRAME_HEADER, length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != expected) {
+                    // Torn or corrupt write, nothing after it is trusted
+                    return position + offset;
+                }
+                if (handler != null) {
+                    handler.accept(payload);
+                }
+                offset += FRAME_HEADER + length;
+            }
+            if (offset == 0) {
+                break;
+            }
+            position += offset;
+        }
+        return position;
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nTransactionJournal Tests:");
+
+        Path file = Files.createTempFile("arcade", ".journal");
+        Files.delete(file);
+
+        // Day's activity, journaled in small batches
+        Arcade arcade = new Arcade("GameCo");
+        arcade.addArcadeGame(new CabinetGame("CB00000001", "Test cabinet game 1", 100, true));
+        try (TransactionJournal journal = open(file, 2, 1000)) {
+            arcade.setJournal(journal);
+            arcade.addCustomer(new Customer("Test01", "Customer 1", 52, DiscountType.NONE, 1000));
+            arcade.addCustomer(new Customer("Test02", "Customer 2", 19, DiscountType.STUDENT, 100));
+            arcade.getCustomer("Test01").addFunds(500);
+            arcade.processTransaction("Test01", "CB00000001", true);
+            arcade.processTransaction("Test02", "CB00000001", false);
+        }
+
+        // Recovery onto freshly loaded state
+        // Expected outcome: balances 1400 and 24, revenue 176
+        Arcade recovered = new Arcade("GameCo");
+        recovered.addArcadeGame(new CabinetGame("CB00000001", "Test cabinet game 1", 100, true));
+        long records = replay(file, recovered);
+        if (records == 5 && recovered.getCustomer("Test01").getBalance() == 1400
+                && recovered.getCustomer("Test02").getBalance() == 24 && recovered.getTotalRevenue() == 176) {
+            System.out.println("Test 1 passed: " + records + " records, " + recovered);
+        } else {
+            System.err.println("Test 1 failed: " + records + " records, " + recovered);
+        }
+
+        // Torn final frame is ignored and truncated
+        Files.write(file, new byte[]{0, 0, 0, 50, 1, 2}, StandardOpenOption.APPEND);
+        Arcade torn = new Arcade("GameCo");
+        torn.addArcadeGame(new CabinetGame("CB00000001", "Test cabinet game 1", 100, true));
+        long tornRecords = replay(file, torn);
+        long before = Files.size(file);
+        open(file).close();
+        if (tornRecords == 5 && Files.size(file) == before - 6) {
+            System.out.println("Test 2 passed");
+        } else {
+            System.err.println("Test 2 failed: " + tornRecords + " records");
+        }
+
+        // A failed write fails the journal for good
+        // Expected outcome: later records refused, close still works
+        Files.delete(file);
+        TransactionJournal broken = open(file, 4, 1000);
+        broken.recordCharge("Test01", 100);
+        broken.channel.close();
+        boolean refused = false;
+        try {
+            broken.commit();
+        } catch (IOException first) {
+            try {
+                broken.recordCharge("Test01", 100);
+            } catch (IOException e) {
+                refused = broken.isFailed();
+            }
+        }
+        broken.close();
+        if (refused && replay(file, new Arcade("GameCo")) == 0) {
+            System.out.println("Test 3 passed");
+        } else {
+            System.err.println("Test 3 failed");
+        }
+
+        // Funds added by another till the moment a customer is
+        // visible are journaled after the customer, not lost
+        // Expected outcome: every customer replays at 10
+        Files.delete(file);
+        Arcade live = new Arcade("GameCo");
+        int count = 2_000;
+        try (TransactionJournal journal = open(file)) {
+            live.setJournal(journal);
+            Thread till = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    String id = String.format("JR%04d", i);
+                    while (true) {
+                        try {
+                            live.getCustomer(id).addFunds(10);
+                            break;
+                        } catch (InvalidCustomerException e) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                }
+            });
+            till.start();
+            for (int i = 0; i < count; i++) {
+                live.addCustomer(new Customer(String.format("JR%04d", i), "Customer", 30, DiscountType.NONE, 0));
+            }
+            till.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Arcade replayed = new Arcade("GameCo");
+        long replayedRecords = replay(file, replayed);
+        boolean matches = replayedRecords == 2L * count;
+        for (int i = 0; i < count && matches; i++) {
+            matches = replayed.getCustomer(String.format("JR%04d", i)).getBalance() == 10;
+        }
+        if (matches) {
+            System.out.println("Test 4 passed: " + replayedRecords + " records");
+        } else {
+            System.err.println("Test 4 failed: " + replayedRecords + " records");
+        }
+
+        // Tills journaling at once through different stripes
+        // Expected outcome: replay matches every balance and revenue
+        Files.delete(file);
+        Arcade busy = new Arcade("GameCo");
+        busy.addArcadeGame(new CabinetGame("CB00000001", "Test cabinet game 1", 100, true));
+        try (TransactionJournal journal = open(file, 64, 5)) {
+            busy.setJournal(journal);
+            for (int i = 0; i < 8; i++) {
+                busy.addCustomer(new Customer("BUSY0" + i, "Customer", 30, DiscountType.NONE, 1_000_000));
+            }
+            Thread[] tills = new Thread[4];
+            for (int t = 0; t < tills.length; t++) {
+                int till = t;
+                tills[t] = new Thread(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        String id = "BUSY0" + (till + 4 * (i & 1));
+                        busy.tryProcessTransaction(id, "CB00000001", i % 3 == 0);
+                        if (i % 10 == 0) {
+                            busy.getCustomer(id).addFunds(25);
+                        }
+                    }
+                });
+                tills[t].start();
+            }
+            for (Thread till : tills) {
+                till.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Arcade busyReplayed = new Arcade("GameCo");
+        busyReplayed.addArcadeGame(new CabinetGame("CB00000001", "Test cabinet game 1", 100, true));
+        replay(file, busyReplayed);
+        boolean same = busyReplayed.getTotalRevenue() == busy.getTotalRevenue();
+        for (int i = 0; i < 8 && same; i++) {
+            same = busyReplayed.getCustomer("BUSY0" + i).getBalance() == busy.getCustomer("BUSY0" + i).getBalance();
+        }
+        if (same) {
+            System.out.println("Test 5 passed: " + busyReplayed);
+        } else {
+            System.err.println("Test 5 failed: " + busyReplayed + ", live " + busy);
+        }
+
+        // awaitDurable puts a record on disk well before the
+        // background flush would
+        // Expected outcome: first record replayed before close,
+        // a second ticket already durable costs nothing
+        Files.deleteIfExists(file);
+        try (TransactionJournal slow = open(file, 1_000_000, 60_000)) {
+            long ticket = slow.recordCharge("Test01", 100);
+            long unflushed = Files.size(file);
+            slow.awaitDurable(ticket);
+            Arcade durable = new Arcade("GameCo");
+            durable.addCustomer(new Customer("Test01", "Test Customer 1", 20, DiscountType.NONE, 500));
+            long durableRecords = replay(file, durable);
+            long position = slow.channel.position();
+            slow.awaitDurable(ticket);
+            if (unflushed == 0 && durableRecords == 1 && durable.getCustomer("Test01").getBalance() == 400
+                    && slow.channel.position() == position) {
+                System.out.println("Test 6 passed: " + durableRecords + " record durable");
+            } else {
+                System.err.println("Test 6 failed: " + unflushed + " bytes then " + durableRecords + " records");
+            }
+        }
+
+        Files.deleteIfExists(file);
+    }
+}
@@ -0,0 +1,72 @@
+/*************************************************************************
+
+ File: TransactionResult.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ ENUM - outcome of Arcade.tryProcessTransaction, lets
+ callers handle declined plays without the cost of
+ creating and catching an exception, each declined
+ outcome can still be turned into the matching exception
+ Batched plays report each outcome as its one byte code
+ JOURNAL_FAILED is not a decline, the customer was charged
+ and revenue counted but the play couldn't be journaled, so
+ it won't survive a recovery
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package arcade;
+
+import exceptions.AgeLimitException;
+import exceptions.InsufficientBalanceException;
+import exceptions.InvalidCustomerException;
+import exceptions.InvalidGameIdException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+public enum TransactionResult {
+    SUCCESS,
+    INVALID_CUSTOMER,
+    INVALID_GAME,
+    AGE_LIMIT,
+    INSUFFICIENT_BALANCE,
+    JOURNAL_FAILED;
+
+    private static final TransactionResult[] RESULTS = values();
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+
+    // Whether the customer was charged, journaled or not
+    public boolean isCharged() {
+        return this == SUCCESS || this == JOURNAL_FAILED;
+    }
+
+    // One byte code used in batch result vectors
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    public static TransactionResult fromCode(byte code) {
+        return RESULTS[code];
+    }
+
+    // Exception the throwing API reports for this outcome
+    public RuntimeException toException() {
+        return switch (this) {
+            case SUCCESS -> new IllegalStateException("Transaction succeeded.");
+            case INVALID_CUSTOMER -> new InvalidCustomerException("Customer ID doesn't exist.");
+            case INVALID_GAME -> new InvalidGameIdException("Game ID doesn't exist.");
+            case AGE_LIMIT -> new AgeLimitException("Customer is not old enough to play game.");
+            case INSUFFICIENT_BALANCE -> new InsufficientBalanceException("Insufficient funds to play game.");
+            case JOURNAL_FAILED -> new UncheckedIOException(
+                    new IOException("Play charged but the journal failed, it won't be recovered."));
+        };
+    }
+}
@@ -31,7 +31,6 @@ public class VirtualRealityGame extends ActiveGame{
     public VirtualRealityGame(String id, String name, int price, int minAge, EquipmentType equipmentType)
             throws InvalidGameIdException{
         super(id, name, price, minAge);
-        validateId(id);
         this.equipmentType = equipmentType;
     }
 
@@ -71,6 +70,11 @@ public class VirtualRealityGame extends ActiveGame{
         return equipmentType;
     }
 
+    @Override
+    public GameType getGameType(){
+        return GameType.VIRTUAL_REALITY;
+    }
+
     // Overrides the toString method
     // Providing a formatted VirtualRealityGame representation
     @Override
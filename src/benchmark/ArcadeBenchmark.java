@@ -0,0 +1,369 @@
+/*************************************************************************
+
+ File: ArcadeBenchmark.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Micro and macro benchmark suite for the arcade hot paths
+ Measures processTransaction (peak / off-peak), batched
+ processTransactions, chargeAccount for each DiscountType, calculatePrice for each game subclass,
+ and initialiseArcade / simulateFun over input files from
+ WorkloadGenerator, then ParallelReplay of the largest file
+ at 1 partition up to twice the core count, with and
+ without a journal, so its scaling is measured not assumed
+ Reports throughput, latency percentiles and allocation rate
+ so regressions show up as a number rather than a feeling
+
+ Usage:
+ java benchmark.ArcadeBenchmark [maxRows]
+ maxRows defaults to 100000, use 10000000 for the full sweep
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package benchmark;
+
+import arcade.*;
+
+import customer.Customer;
+import customer.DiscountType;
+import exceptions.InsufficientBalanceException;
+import simulation.ParallelReplay;
+import simulation.Simulation;
+import simulation.WorkloadGenerator;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class ArcadeBenchmark {
+
+    // Member Variables //
+    // Iterations used to warm up the JIT before measuring
+    private static final int WARMUP_ITERATIONS = 5;
+    // Iterations that are measured and reported
+    private static final int MEASURED_ITERATIONS = 5;
+    // Operations per iteration for the micro benchmarks
+    private static final int OPS_PER_ITERATION = 1_000_000;
+    // Individually timed operations used for latency percentiles
+    private static final int LATENCY_SAMPLES = 200_000;
+    // Stops the JIT removing benchmark results as dead code
+    private static volatile long sink;
+
+    // Thread allocation counter, null if the JVM doesn't support it
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    // Single benchmarked operation
+    @FunctionalInterface
+    private interface Operation {
+        long run() throws Exception;
+    }
+
+    // Functions //
+
+    public static void main(String[] args) throws Exception {
+        int maxRows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+        System.out.println("\nArcade Benchmarks:");
+        printHeader();
+
+        benchmarkProcessTransaction(true);
+        benchmarkProcessTransaction(false);
+        benchmarkDeclinedTransaction();
+        benchmarkProcessTransactions(16);
+
+        for (DiscountType discountType : DiscountType.values()) {
+            benchmarkChargeAccount(discountType);
+        }
+
+        benchmarkCalculatePrice(new CabinetGame("CB00000001", "Bench cabinet", 250, true));
+        benchmarkCalculatePrice(new ActiveGame("AX00000001", "Bench active", 250, 12));
+        benchmarkCalculatePrice(new VirtualRealityGame("AV00000001", "Bench vr", 250, 12,
+                EquipmentType.HEADSET_AND_CONTROLLER));
+
+        System.out.println();
+        printFileHeader();
+        File directory = Files.createTempDirectory("arcade-bench").toFile();
+        for (int rows = 1_000; rows <= maxRows; rows *= 10) {
+            benchmarkSimulation(directory, rows);
+        }
+
+        System.out.println();
+        System.out.println("Cores available: " + Runtime.getRuntime().availableProcessors());
+        printReplayHeader();
+        benchmarkParallelReplay(directory, maxRows);
+    }
+
+    // --- MICRO BENCHMARKS --- //
+
+    private static void benchmarkProcessTransaction(boolean peak) throws Exception {
+        Arcade arcade = new Arcade("Bench Arcade");
+        arcade.addArcadeGame(new CabinetGame("CB00000001", "Bench cabinet", 100, true));
+        Customer customer = new Customer("BENCH1", "Bench customer", 30, DiscountType.NONE, Integer.MAX_VALUE);
+        arcade.addCustomer(customer);
+
+        run("processTransaction " + (peak ? "peak" : "off-peak"),
+                () -> topUp(customer) + (arcade.processTransaction("BENCH1", "CB00000001", peak) ? 1 : 0));
+
+        // Same again counting metrics, shows their cost
+        if (peak) {
+            arcade.enableMetrics();
+            run("processTransaction peak, metrics",
+                    () -> topUp(customer) + (arcade.processTransaction("BENCH1", "CB00000001", true) ? 1 : 0));
+            arcade.disableMetrics();
+
+            // And keeping rolling window analytics
+            arcade.enableAnalytics();
+            run("processTransaction peak, analytics",
+                    () -> topUp(customer) + (arcade.processTransaction("BENCH1", "CB00000001", true) ? 1 : 0));
+            arcade.disableAnalytics();
+        }
+    }
+
+    // Declined plays through the throwing and result code APIs
+    private static void benchmarkDeclinedTransaction() throws Exception {
+        Arcade arcade = new Arcade("Bench Arcade");
+        arcade.addArcadeGame(new CabinetGame("CB00000001", "Bench cabinet", 100, true));
+        arcade.addCustomer(new Customer("BENCH1", "Bench customer", 30, DiscountType.NONE, 0));
+
+        run("processTransaction declined", () -> {
+            try {
+                return arcade.processTransaction("BENCH1", "CB00000001", true) ? 1 : 0;
+            } catch (InsufficientBalanceException e) {
+                return 0;
+            }
+        });
+        run("tryProcessTransaction declined",
+                () -> arcade.tryProcessTransaction("BENCH1", "CB00000001", true).ordinal());
+    }
+
+    // One op is a whole batch of plays
+    private static void benchmarkProcessTransactions(int batchSize) throws Exception {
+        Arcade arcade = new Arcade("Bench Arcade");
+        arcade.addArcadeGame(new CabinetGame("CB00000001", "Bench cabinet", 100, true));
+        Customer customer = new Customer("BENCH1", "Bench customer", 30, DiscountType.NONE, Integer.MAX_VALUE);
+        arcade.addCustomer(customer);
+
+        TransactionBatch batch = new TransactionBatch(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add("BENCH1", "CB00000001", i % 2 == 0);
+        }
+        run("processTransactions x" + batchSize, () -> topUp(customer) + arcade.processTransactions(batch)[0]);
+    }
+
+    private static void benchmarkChargeAccount(DiscountType discountType) throws Exception {
+        ArcadeGame game = new CabinetGame("CB00000001", "Bench cabinet", 100, true);
+        Customer customer = new Customer("BENCH1", "Bench customer", 30, discountType, Integer.MAX_VALUE);
+
+        run("chargeAccount " + discountType.name(), () -> topUp(customer) + customer.chargeAccount(game, false));
+    }
+
+    // Refills a bench customer long before a realistic price
+    // could run them out, one volatile read per op otherwise
+    private static int topUp(Customer customer) {
+        if (customer.getBalance() < 1 << 20) {
+            customer.restoreBalance(Integer.MAX_VALUE);
+        }
+        return 0;
+    }
+
+    private static void benchmarkCalculatePrice(ArcadeGame game) throws Exception {
+        boolean[] peak = {false};
+        run("calculatePrice " + game.getClass().getSimpleName(), () -> {
+            peak[0] = !peak[0];
+            return game.calculatePrice(peak[0]);
+        });
+    }
+
+    // Warms up, then measures throughput, allocation and latency of an operation
+    private static void run(String name, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            loop(operation, OPS_PER_ITERATION);
+        }
+
+        // Throughput and allocation
+        long totalOps = (long) OPS_PER_ITERATION * MEASURED_ITERATIONS;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            loop(operation, OPS_PER_ITERATION);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        // Latency, each sample timed on its own
+        long[] samples = new long[LATENCY_SAMPLES];
+        long result = 0;
+        for (int i = 0; i < samples.length; i++) {
+            long t0 = System.nanoTime();
+            result += operation.run();
+            samples[i] = System.nanoTime() - t0;
+        }
+        sink += result;
+        Arrays.sort(samples);
+
+        System.out.printf("%-36s %14.0f %8d %8d %8d %10d %10.1f %10.1f\n",
+                name,
+                totalOps * 1e9 / elapsed,
+                percentile(samples, 0.50),
+                percentile(samples, 0.99),
+                percentile(samples, 0.999),
+                samples[samples.length - 1],
+                (double) allocated / totalOps,
+                allocated / (elapsed / 1e9) / (1 << 20)
+        );
+    }
+
+    private static void loop(Operation operation, int count) throws Exception {
+        long result = 0;
+        for (int i = 0; i < count; i++) {
+            result += operation.run();
+        }
+        sink += result;
+    }
+
+    // --- FILE BENCHMARKS --- //
+
+    // Times initialiseArcade and simulateFun over generated files
+    private static void benchmarkSimulation(File directory, int rows) throws Exception {
+        File games = new File(directory, "games-" + rows + ".txt");
+        File customers = new File(directory, "customers-" + rows + ".txt");
+        File transactions = new File(directory, "transactions-" + rows + ".txt");
+        new WorkloadGenerator(42)
+                .customers(rows)
+                .games(Math.max(10, rows / 100))
+                .transactions(rows)
+                .write(games, customers, transactions);
+
+        // Summaries printed per row are not what we measure
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long[] initialise = new long[3];
+            long[] simulate = new long[3];
+            int iterations = rows >= 1_000_000 ? 1 : 3;
+            for (int i = 0; i < iterations + 1; i++) {
+                long allocatedBefore = allocatedBytes();
+                long start = System.nanoTime();
+                Arcade arcade = Simulation.initialiseArcade("Bench Arcade", games, customers);
+                long initialised = System.nanoTime();
+                long allocatedMiddle = allocatedBytes();
+                Simulation.simulateFun(arcade, transactions);
+                long end = System.nanoTime();
+                long allocatedAfter = allocatedBytes();
+
+                // First pass is warm up, keep the best of the rest
+                if (i > 0 && (initialise[0] == 0 || initialised - start < initialise[0])) {
+                    initialise = new long[]{initialised - start, allocatedMiddle - allocatedBefore};
+                }
+                if (i > 0 && (simulate[0] == 0 || end - initialised < simulate[0])) {
+                    simulate = new long[]{end - initialised, allocatedAfter - allocatedMiddle};
+                }
+            }
+            console.printf("%-36s %10d %12.1f %14.0f %12.1f\n",
+                    "initialiseArcade", rows, initialise[0] / 1e6, rows * 1e9 / initialise[0],
+                    (double) initialise[1] / rows);
+            console.printf("%-36s %10d %12.1f %14.0f %12.1f\n",
+                    "simulateFun", rows, simulate[0] / 1e6, rows * 1e9 / simulate[0],
+                    (double) simulate[1] / rows);
+        } finally {
+            System.setOut(console);
+            games.delete();
+            customers.delete();
+            transactions.delete();
+        }
+    }
+
+    // Times ParallelReplay at each partition count over one
+    // generated file, speed-up is against 1 partition
+    private static void benchmarkParallelReplay(File directory, int rows) throws Exception {
+        File games = new File(directory, "games-replay.txt");
+        File customers = new File(directory, "customers-replay.txt");
+        File transactions = new File(directory, "transactions-replay.txt");
+        File journalFile = new File(directory, "replay.journal");
+        new WorkloadGenerator(42)
+                .customers(rows)
+                .games(Math.max(10, rows / 100))
+                .transactions(rows)
+                .write(games, customers, transactions);
+
+        PrintStream console = System.out;
+        int maxPartitions = 2 * Runtime.getRuntime().availableProcessors();
+        try {
+            for (boolean journaled : new boolean[]{false, true}) {
+                long single = 0;
+                for (int partitions = 1; partitions <= maxPartitions; partitions *= 2) {
+                    long best = Long.MAX_VALUE;
+                    for (int i = 0; i < 3; i++) {
+                        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                        Arcade arcade = Simulation.initialiseArcade("Bench Arcade", games, customers);
+                        journalFile.delete();
+                        TransactionJournal journal = journaled ? TransactionJournal.open(journalFile.toPath()) : null;
+                        arcade.setJournal(journal);
+                        long start = System.nanoTime();
+                        ParallelReplay.replay(arcade, transactions, partitions);
+                        if (journal != null) {
+                            journal.close();
+                        }
+                        best = Math.min(best, System.nanoTime() - start);
+                        System.setOut(console);
+                    }
+                    if (partitions == 1) {
+                        single = best;
+                    }
+                    console.printf("%-36s %10d %12.1f %14.0f %12s\n",
+                            "parallelReplay x" + partitions + (journaled ? ", journal" : ""), rows, best / 1e6,
+                            rows * 1e9 / best, String.format("%.2fx", (double) single / best));
+                }
+            }
+        } finally {
+            System.setOut(console);
+            games.delete();
+            customers.delete();
+            transactions.delete();
+            journalFile.delete();
+        }
+    }
+
+    // --- REPORTING --- //
+
+    private static void printHeader() {
+        System.out.printf("%-36s %14s %8s %8s %8s %10s %10s %10s\n",
+                "Benchmark", "ops/s", "p50 ns", "p99 ns", "p99.9 ns", "max ns", "B/op", "MB/s");
+    }
+
+    private static void printFileHeader() {
+        System.out.printf("%-36s %10s %12s %14s %12s\n",
+                "Benchmark", "rows", "ms", "rows/s", "B/row");
+    }
+
+    private static void printReplayHeader() {
+        System.out.printf("%-36s %10s %12s %14s %12s\n",
+                "Benchmark", "rows", "ms", "rows/s", "speed-up");
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    // Bytes allocated so far by the current thread
+    private static long allocatedBytes() {
+        if (THREADS == null) {
+            return 0;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+            return bean;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+/*************************************************************************
+
+ File: BalanceListener.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ INTERFACE - Hook called by Customer whenever its balance
+ changes through addFunds or chargeAccount, used by Arcade
+ to keep derived structures like the leaderboard up to date
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package customer;
+
+@FunctionalInterface
+public interface BalanceListener {
+    // Called after the balance has changed
+    void onBalanceChanged(Customer customer, int oldBalance, int newBalance);
+}
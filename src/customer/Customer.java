@@ -12,6 +12,11 @@
  representing their funds for playing arcade games
  utilises an overdraft for students allowing their
  balance to go to -500.
+ Balance updates use a compare-and-set loop so a
+ customer can be charged from several threads
+ without losing an update or overdrawing.
+ Every balance change is reported to an optional
+ BalanceListener.
 
  History: 04/05/2025 v 1.00
 
@@ -25,6 +30,11 @@ import customer.DiscountType;
 import exceptions.AgeLimitException;
 import exceptions.InsufficientBalanceException;
 import exceptions.InvalidCustomerException;
+import money.Money;
+import validation.IdValidator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 public class Customer {
 
@@ -33,7 +43,23 @@ public class Customer {
     private final String name;
     private final int age;
     private final DiscountType discountType;
-    private int balance;
+    private volatile int balance;
+    private volatile BalanceListener balanceListener;
+
+    // Returned by tryChargeAccount when a play is declined
+    public static final int DECLINED_AGE_LIMIT = Integer.MIN_VALUE;
+    public static final int DECLINED_INSUFFICIENT_BALANCE = Integer.MIN_VALUE + 1;
+
+    // Handle for atomic compare-and-set on balance
+    private static final VarHandle BALANCE;
+
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(Customer.class, "balance", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
     // Constructors //
     public Customer(String id, String name, int age, DiscountType discountType) throws InvalidCustomerException{
@@ -63,64 +89,95 @@ public class Customer {
 
     // Validates if ID is 6 alphanumeric characters
     private void validateId(String id) throws InvalidCustomerException {
-        if (id == null || id.length() != 6 || !id.matches("[a-zA-Z0-9]{6}")){
+        if (!IdValidator.isValidCustomerId(id)){
             throw new InvalidCustomerException("Invalid customer ID: \nMust be 6 alphanumeric characters.");
         }
     }
 
-    // Adds positive funds to balance in pence
+    // Adds positive funds to balance in pence, throws
+    // ArithmeticException rather than wrapping the balance
     public void addFunds(int amount){
-        if (amount > 0){
-            balance += amount;
+        addFundsAndGet(amount);
+    }
+
+    // As addFunds, returns the balance this call produced
+    // rather than one another thread may have changed since
+    public int addFundsAndGet(int amount){
+        if (amount <= 0){
+            return this.balance;
         }
+        int oldBalance;
+        int newBalance;
+        do {
+            oldBalance = this.balance;
+            newBalance = Math.addExact(oldBalance, amount);
+        } while (!BALANCE.compareAndSet(this, oldBalance, newBalance));
+        notifyBalanceChanged(oldBalance, newBalance);
+        return newBalance;
     }
 
     // Charges funds per game play in pence
     public int chargeAccount(ArcadeGame arcadeGame, boolean peak) throws InsufficientBalanceException, AgeLimitException{
+        int price = tryChargeAccount(arcadeGame, peak);
+        if (price == DECLINED_AGE_LIMIT) {
+            throw new AgeLimitException("Customer is not old enough to play game.");
+        }
+        if (price == DECLINED_INSUFFICIENT_BALANCE) {
+            throw new InsufficientBalanceException("Insufficient funds to play game.");
+        }
+        return price;
+    }
+
+    // Exception free version of chargeAccount, returns the
+    // price charged or one of the DECLINED codes
+    public int tryChargeAccount(ArcadeGame arcadeGame, boolean peak) {
         // Checks if activeGame or a subclass
         if (arcadeGame instanceof ActiveGame activeGame) {
             // Age check
             if (this.age < activeGame.getMinAge()) {
-                throw new AgeLimitException("Customer is not old enough to play game.");
+                return DECLINED_AGE_LIMIT;
             }
         }
 
         // Price has local discounts depending on if peak or not
-        int price = arcadeGame.calculatePrice(peak);
-        // initialise overdraft
-        int overdraft = 0;
-
-        // Additional discount
-        // only if off-peak
-        if (!peak){
-            // Replaces price with discounted
-            switch(discountType) {
-                // 10% discount
-                case STAFF -> price = (int) Math.floor(price * 0.9);
-                // 5% discount
-                case STUDENT -> {
-                    price = (int) Math.floor(price * 0.95);
-                    overdraft = -500;
-                }
-                // 0% discount
-                case NONE -> {}
+        // and the additional off-peak discount for the customer
+        // precomputed by the game, so this is a table lookup
+        int price = arcadeGame.getCharge(peak, discountType);
+        // Students have an overdraft regardless of if peak
+        int overdraft = discountType.getOverdraftLimit();
+
+        // Checking balance and deducting cost of game
+        // retries if another thread changed the balance
+        // between the check and the deduction
+        int current;
+        do {
+            current = this.balance;
+            // If balance after game less than 0/-500
+            if ((current - price) < overdraft){
+                return DECLINED_INSUFFICIENT_BALANCE;
             }
-        // Adds overdraft regardless of if peak
-        } else {
-            if (discountType == DiscountType.STUDENT){
-                overdraft = -500;
-            }
-        }
+        } while (!BALANCE.compareAndSet(this, current, current - price));
+        notifyBalanceChanged(current, current - price);
+        return price;
+    }
 
-        // Checking balance
-        // If balance after game less than 0/-500
-        if ((this.balance - price) < overdraft){
-            throw new InsufficientBalanceException("Insufficient funds to play game.");
-        }
+    // Sets the balance directly, bypassing the checks made by
+    // addFunds and chargeAccount, used when restoring saved state
+    public void restoreBalance(int balance) {
+        int oldBalance = (int) BALANCE.getAndSet(this, balance);
+        notifyBalanceChanged(oldBalance, balance);
+    }
 
-        // Deducts cost of game from balance
-        this.balance -= price;
-        return price;
+    // Registers the hook called after every balance change
+    public void setBalanceListener(BalanceListener balanceListener) {
+        this.balanceListener = balanceListener;
+    }
+
+    private void notifyBalanceChanged(int oldBalance, int newBalance) {
+        BalanceListener listener = balanceListener;
+        if (listener != null) {
+            listener.onBalanceChanged(this, oldBalance, newBalance);
+        }
     }
 
     // Accessors //
@@ -138,10 +195,13 @@ public class Customer {
 
     @Override
     public String toString() {
-        return String.format(
-                "CustomerID = %s, Name = %s, Age = %d, Discount Type = %s, Balance = %.2f",
-                id, name, age, discountType.name(), balance/100.00
-        );
+        StringBuilder text = new StringBuilder(96)
+                .append("CustomerID = ").append(id)
+                .append(", Name = ").append(name)
+                .append(", Age = ").append(age)
+                .append(", Discount Type = ").append(discountType.name())
+                .append(", Balance = ");
+        return Money.appendPounds(text, balance).toString();
     }
 
     // Test harness
@@ -188,17 +248,17 @@ public class Customer {
 
 
 
-            System.out.printf("STAFF before = £%.2f\n", STAFF.getBalance()/100.00);
+            System.out.println("STAFF before = " + Money.format(STAFF.getBalance()));
             STAFF.chargeAccount(c5, false);
-            System.out.printf("STAFF after = £%.2f\n", STAFF.getBalance()/100.00);
+            System.out.println("STAFF after = " + Money.format(STAFF.getBalance()));
 
-            System.out.printf("STUDENT before = £%.2f\n", STUDENT.getBalance()/100.00);
+            System.out.println("STUDENT before = " + Money.format(STUDENT.getBalance()));
             STUDENT.chargeAccount(c5, false);
-            System.out.printf("STUDENT after = £%.2f\n", STUDENT.getBalance()/100.00);
+            System.out.println("STUDENT after = " + Money.format(STUDENT.getBalance()));
 
-            System.out.printf("NONE before = £%.2f\n", NONE.getBalance()/100.00);
+            System.out.println("NONE before = " + Money.format(NONE.getBalance()));
             NONE.chargeAccount(c5, false);
-            System.out.printf("NONE after = £%.2f\n", NONE.getBalance()/100.00);
+            System.out.println("NONE after = " + Money.format(NONE.getBalance()));
 
         } catch (Exception e) {
             System.err.println("Test 4 failed: " + e.getMessage());
@@ -211,9 +271,9 @@ public class Customer {
 
             Customer NONE1 = new Customer("Test04", "Customer 4", 22, DiscountType.NONE, 555);
 
-            System.out.printf("NONE1 before = £%.2f\n", NONE1.getBalance()/100.00);
+            System.out.println("NONE1 before = " + Money.format(NONE1.getBalance()));
             NONE1.chargeAccount(c6, true);
-            System.out.printf("NONE1 after = £%.2f\n", NONE1.getBalance()/100.00);
+            System.out.println("NONE1 after = " + Money.format(NONE1.getBalance()));
 
         } catch (Exception e) {
             System.err.println("Test 5 failed: " + e.getMessage());
@@ -239,7 +299,7 @@ public class Customer {
 
             Customer STUDENT1 = new Customer("Test06", "Customer 6", 65, DiscountType.STUDENT, 100);
             STUDENT1.chargeAccount(c7, false);
-            System.out.printf("STUDENT1 balance = £%.2f\n", STUDENT1.getBalance()/100.00);
+            System.out.println("STUDENT1 balance = " + Money.format(STUDENT1.getBalance()));
 
         } catch (Exception e) {
             System.err.println("Test 7 failed. " + e.getMessage());
@@ -251,7 +311,7 @@ public class Customer {
             Customer STUDENT2 = new Customer("Test07", "Customer 7", 34, DiscountType.STUDENT);
             STUDENT2.chargeAccount(c8, true);
             STUDENT2.chargeAccount(c8, true);
-            System.out.printf("STUDENT2 balance = £%.2f\n", STUDENT2.getBalance()/100.00);
+            System.out.println("STUDENT2 balance = " + Money.format(STUDENT2.getBalance()));
             System.err.println("Test 7 failed: Should throw InsufficientBalanceException");
         } catch (InsufficientBalanceException e) {
             System.out.println("Test 7 passed.");
@@ -261,13 +321,23 @@ public class Customer {
 
         try {
             Customer NONE3 = new Customer("Test08", "Customer 8", 55, DiscountType.NONE);
-            System.out.printf("NONE3 before = £%.2f\n", NONE3.getBalance()/100.00);
+            System.out.println("NONE3 before = " + Money.format(NONE3.getBalance()));
             NONE3.addFunds(1560);
-            System.out.printf("NONE3 after = £%.2f\n", NONE3.getBalance()/100.00);
+            System.out.println("NONE3 after = " + Money.format(NONE3.getBalance()));
         } catch (Exception e) {
             System.err.println("Test 9 failed.");
         }
 
+        // Funds past the int range are refused, balance unchanged
+        try {
+            Customer NONE4 = new Customer("Test09", "Customer 9", 40, DiscountType.NONE, Integer.MAX_VALUE - 10);
+            NONE4.addFunds(20);
+            System.err.println("Test 10 failed: Should throw ArithmeticException");
+        } catch (ArithmeticException e) {
+            System.out.println("Test 10 passed.");
+        } catch (Exception e) {
+            System.err.println("Test 10 failed");
+        }
 
     }
 }
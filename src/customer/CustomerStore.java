@@ -0,0 +1,464 @@
+/*************************************************************************
+
+ File: CustomerStore.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Column oriented alternative to holding a Customer object
+ per account, for estates of tens of millions of customers
+ Each customer is a row number, their ID, age, discount
+ and balance live in primitive columns and their name in
+ a shared byte arena, so the heap holds a few large arrays
+ however many customers there are, rather than several
+ objects per customer for the garbage collector to trace
+ CustomerView is a reusable flyweight over one row with the
+ same getBalance, addFunds and chargeAccount rules as Customer
+
+
+ Data Structure reasoning:
+ Columns are split into fixed size chunks which never move
+ once allocated, so growing the store only copies the
+ small chunk directory and a balance can be updated with a
+ lock-free compare-and-set on its array element while rows
+ are being added
+ IDs are stored as CompactIds and found through an open
+ addressing long to row table, names are UTF-8 in 1MB arena
+ chunks, a row keeps its name's arena position and length
+ Adding is synchronized, lookups and balance changes are
+ lock-free, the chunk directory and row table are published
+ through volatile fields
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package customer;
+
+import arcade.ActiveGame;
+import arcade.ArcadeGame;
+import arcade.CabinetGame;
+import exceptions.AgeLimitException;
+import exceptions.InsufficientBalanceException;
+import exceptions.InvalidCustomerException;
+import money.Money;
+import validation.CompactId;
+import validation.IdValidator;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class CustomerStore {
+
+    // Member Variables //
+    // Rows per column chunk
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    // Bytes per name arena chunk
+    private static final int ARENA_SHIFT = 20;
+    private static final int ARENA_CHUNK_SIZE = 1 << ARENA_SHIFT;
+
+    private static final DiscountType[] DISCOUNT_TYPES = DiscountType.values();
+    private static final VarHandle BALANCES = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile Chunk[] chunks;
+    private volatile byte[][] arena;
+    private volatile RowTable rowTable;
+    private volatile int size;
+    // Next free byte in the last arena chunk
+    private int arenaPosition;
+
+    // Constructor //
+    public CustomerStore() {
+        this.chunks = new Chunk[0];
+        this.arena = new byte[0][];
+        this.rowTable = new RowTable(16);
+        this.size = 0;
+        this.arenaPosition = ARENA_CHUNK_SIZE;
+    }
+
+    // Functions //
+
+    // ADD //
+    // Adds a customer, same rules as the Customer constructor
+    // and Arcade.addCustomer, returns the customer's row
+    public synchronized int add(String id, String name, int age, DiscountType discountType, int balance)
+            throws InvalidCustomerException {
+        if (!IdValidator.isValidCustomerId(id)) {
+            throw new InvalidCustomerException("Invalid customer ID: \nMust be 6 alphanumeric characters.");
+        }
+        if (balance < 0) {
+            throw new InvalidCustomerException();
+        }
+        long key = CompactId.encodeCustomerId(id);
+        if (findRow(key) >= 0) {
+            throw new InvalidCustomerException("Customer ID already exists.");
+        }
+
+        int row = size;
+        Chunk chunk = chunkFor(row);
+        int slot = row & CHUNK_MASK;
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        chunk.ids[slot] = key;
+        chunk.ages[slot] = age;
+        chunk.discounts[slot] = (byte) discountType.ordinal();
+        chunk.balances[slot] = balance;
+        chunk.nameStarts[slot] = storeName(nameBytes);
+        chunk.nameLengths[slot] = nameBytes.length;
+
+        // Row is readable before it can be found by ID
+        size = row + 1;
+        insertRow(key, row);
+        return row;
+    }
+
+    // GET //
+    // Row of a customer, -1 if absent
+    public int findRow(String id) {
+        return findRow(CompactId.encodeCustomerId(id));
+    }
+
+    public int findRow(long customerKey) {
+        if (customerKey < 0) {
+            return -1;
+        }
+        RowTable table = this.rowTable;
+        long stored = customerKey + 1;
+        int mask = table.keys.length - 1;
+        for (int i = slot(customerKey, mask); ; i = (i + 1) & mask) {
+            long current = (long) KEYS.getAcquire(table.keys, i);
+            if (current == stored) {
+                return table.rows[i];
+            }
+            if (current == 0) {
+                return -1;
+            }
+        }
+    }
+
+    // New flyweight, move it between rows rather than
+    // creating one per customer
+    public CustomerView view() {
+        return new CustomerView();
+    }
+
+    // Number of customers
+    public int size() {
+        return size;
+    }
+
+    // --- COLUMN ACCESS --- //
+
+    public String getId(int row) {
+        return CompactId.decode(chunk(row).ids[row & CHUNK_MASK], IdValidator.CUSTOMER_ID_LENGTH);
+    }
+
+    public String getName(int row) {
+        Chunk chunk = chunk(row);
+        int start = chunk.nameStarts[row & CHUNK_MASK];
+        return new String(arena[start >>> ARENA_SHIFT], start & (ARENA_CHUNK_SIZE - 1),
+                chunk.nameLengths[row & CHUNK_MASK], StandardCharsets.UTF_8);
+    }
+
+    public int getAge(int row) {
+        return chunk(row).ages[row & CHUNK_MASK];
+    }
+
+    public DiscountType getDiscountType(int row) {
+        return DISCOUNT_TYPES[chunk(row).discounts[row & CHUNK_MASK]];
+    }
+
+    public int getBalance(int row) {
+        return (int) BALANCES.getVolatile(chunk(row).balances, row & CHUNK_MASK);
+    }
+
+    // Adds positive funds to balance in pence, throws
+    // ArithmeticException rather than wrapping the balance
+    public void addFunds(int row, int amount) {
+        if (amount > 0) {
+            int[] balances = chunk(row).balances;
+            int index = row & CHUNK_MASK;
+            int current;
+            do {
+                current = (int) BALANCES.getVolatile(balances, index);
+            } while (!BALANCES.compareAndSet(balances, index, current, Math.addExact(current, amount)));
+        }
+    }
+
+    // Charges funds per game play in pence
+    public int chargeAccount(int row, ArcadeGame arcadeGame, boolean peak)
+            throws InsufficientBalanceException, AgeLimitException {
+        int price = tryChargeAccount(row, arcadeGame, peak);
+        if (price == Customer.DECLINED_AGE_LIMIT) {
+            throw new AgeLimitException("Customer is not old enough to play game.");
+        }
+        if (price == Customer.DECLINED_INSUFFICIENT_BALANCE) {
+            throw new InsufficientBalanceException("Insufficient funds to play game.");
+        }
+        return price;
+    }
+
+    // Exception free version of chargeAccount, returns the
+    // price charged or one of the Customer DECLINED codes
+    public int tryChargeAccount(int row, ArcadeGame arcadeGame, boolean peak) {
+        Chunk chunk = chunk(row);
+        int slot = row & CHUNK_MASK;
+        if (arcadeGame instanceof ActiveGame activeGame && chunk.ages[slot] < activeGame.getMinAge()) {
+            return Customer.DECLINED_AGE_LIMIT;
+        }
+
+        DiscountType discountType = DISCOUNT_TYPES[chunk.discounts[slot]];
+        int price = arcadeGame.getCharge(peak, discountType);
+        int overdraft = discountType.getOverdraftLimit();
+
+        // Same compare-and-set loop as Customer, on the array element
+        int current;
+        do {
+            current = (int) BALANCES.getVolatile(chunk.balances, slot);
+            if ((current - price) < overdraft) {
+                return Customer.DECLINED_INSUFFICIENT_BALANCE;
+            }
+        } while (!BALANCES.compareAndSet(chunk.balances, slot, current, current - price));
+        return price;
+    }
+
+    // --- STORAGE HANDLING --- //
+
+    private Chunk chunk(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+        return chunks[row >>> CHUNK_SHIFT];
+    }
+
+    // Chunk for a new row, allocating one when needed
+    private Chunk chunkFor(int row) {
+        int index = row >>> CHUNK_SHIFT;
+        Chunk[] chunks = this.chunks;
+        if (index == chunks.length) {
+            chunks = Arrays.copyOf(chunks, index + 1);
+            chunks[index] = new Chunk();
+            this.chunks = chunks;
+        }
+        return chunks[index];
+    }
+
+    // Copies a name into the arena, returns its position
+    private int storeName(byte[] nameBytes) {
+        if (nameBytes.length > ARENA_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Customer name too long.");
+        }
+        byte[][] arena = this.arena;
+        if (arenaPosition + nameBytes.length > ARENA_CHUNK_SIZE) {
+            arena = Arrays.copyOf(arena, arena.length + 1);
+            arena[arena.length - 1] = new byte[ARENA_CHUNK_SIZE];
+            arenaPosition = 0;
+        }
+        int chunkIndex = arena.length - 1;
+        System.arraycopy(nameBytes, 0, arena[chunkIndex], arenaPosition, nameBytes.length);
+        int start = (chunkIndex << ARENA_SHIFT) | arenaPosition;
+        arenaPosition += nameBytes.length;
+        this.arena = arena;
+        return start;
+    }
+
+    private void insertRow(long key, int row) {
+        RowTable table = this.rowTable;
+        if ((row + 1) * 3 > table.keys.length * 2) {
+            // Full enough, rebuild at double size then publish
+            RowTable grown = new RowTable(table.keys.length * 2);
+            for (int i = 0; i < table.keys.length; i++) {
+                if (table.keys[i] != 0) {
+                    grown.put(table.keys[i], table.rows[i]);
+                }
+            }
+            grown.put(key + 1, row);
+            this.rowTable = grown;
+        } else {
+            table.put(key + 1, row);
+        }
+    }
+
+    // Fibonacci hashing spreads sequential IDs across slots
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    // One block of rows in every column
+    private static final class Chunk {
+        private final long[] ids = new long[CHUNK_ROWS];
+        private final int[] ages = new int[CHUNK_ROWS];
+        private final byte[] discounts = new byte[CHUNK_ROWS];
+        private final int[] balances = new int[CHUNK_ROWS];
+        private final int[] nameStarts = new int[CHUNK_ROWS];
+        private final int[] nameLengths = new int[CHUNK_ROWS];
+    }
+
+    // Open addressing CompactId to row table, key slots
+    // hold key + 1 so 0 marks an empty slot
+    private static final class RowTable {
+        private final long[] keys;
+        private final int[] rows;
+
+        private RowTable(int capacity) {
+            this.keys = new long[capacity];
+            this.rows = new int[capacity];
+        }
+
+        // Row is written before the key is released
+        private void put(long stored, int row) {
+            int mask = keys.length - 1;
+            int i = slot(stored - 1, mask);
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            rows[i] = row;
+            KEYS.setRelease(keys, i, stored);
+        }
+    }
+
+    // Flyweight over one customer row
+    public class CustomerView {
+
+        private int row = -1;
+
+        private CustomerView() {
+        }
+
+        // Points the view at a row
+        public CustomerView moveTo(int row) {
+            chunk(row);
+            this.row = row;
+            return this;
+        }
+
+        // Points the view at a customer, false if absent
+        public boolean find(String id) {
+            int found = findRow(id);
+            if (found < 0) {
+                return false;
+            }
+            this.row = found;
+            return true;
+        }
+
+        public int getRow() {return row;}
+
+        public String getId() {return CustomerStore.this.getId(row);}
+
+        public String getName() {return CustomerStore.this.getName(row);}
+
+        public int getAge() {return CustomerStore.this.getAge(row);}
+
+        public DiscountType getDiscountType() {return CustomerStore.this.getDiscountType(row);}
+
+        public int getBalance() {return CustomerStore.this.getBalance(row);}
+
+        public void addFunds(int amount) {
+            CustomerStore.this.addFunds(row, amount);
+        }
+
+        public int chargeAccount(ArcadeGame arcadeGame, boolean peak)
+                throws InsufficientBalanceException, AgeLimitException {
+            return CustomerStore.this.chargeAccount(row, arcadeGame, peak);
+        }
+
+        public int tryChargeAccount(ArcadeGame arcadeGame, boolean peak) {
+            return CustomerStore.this.tryChargeAccount(row, arcadeGame, peak);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(96)
+                    .append("CustomerID = ").append(getId())
+                    .append(", Name = ").append(getName())
+                    .append(", Age = ").append(getAge())
+                    .append(", Discount Type = ").append(getDiscountType().name())
+                    .append(", Balance = ");
+            return Money.appendPounds(text, getBalance()).toString();
+        }
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws Exception {
+        System.out.println("\nCustomerStore Tests:");
+
+        CustomerStore store = new CustomerStore();
+
+        // Adding and viewing a customer
+        store.add("A00001", "Zoë Customer", 22, DiscountType.STUDENT, 2245);
+        CustomerView view = store.view();
+        Customer expected = new Customer("A00001", "Zoë Customer", 22, DiscountType.STUDENT, 2245);
+        if (view.find("A00001") && view.toString().equals(expected.toString()) && !view.find("B00001")) {
+            System.out.println("Test 1 passed: " + view);
+        } else {
+            System.err.println("Test 1 failed: " + view);
+        }
+
+        // Duplicate and invalid IDs
+        try {
+            store.add("A00001", "Duplicate", 30, DiscountType.NONE, 0);
+            System.err.println("Test 2 failed");
+        } catch (InvalidCustomerException e) {
+            try {
+                store.add("321", "Invalid", 30, DiscountType.NONE, 0);
+                System.err.println("Test 2 failed");
+            } catch (InvalidCustomerException e2) {
+                System.out.println("Test 2 passed: " + e.getMessage());
+            }
+        }
+
+        // Same balances as Customer over random plays, across
+        // more rows than one chunk
+        Random random = new Random(42);
+        ArcadeGame[] games = {
+                new CabinetGame("CB00000001", "Cabinet", 150, true),
+                new ActiveGame("AC00000001", "Active", 300, 18),
+        };
+        int customers = CHUNK_ROWS + 1000;
+        Customer[] objects = new Customer[customers];
+        for (int i = 0; i < customers; i++) {
+            String id = CompactId.decode(1_000_000 + i, IdValidator.CUSTOMER_ID_LENGTH);
+            DiscountType discountType = DISCOUNT_TYPES[i % DISCOUNT_TYPES.length];
+            int age = 10 + i % 20;
+            int balance = random.nextInt(1000);
+            objects[i] = new Customer(id, "Customer " + i, age, discountType, balance);
+            store.add(id, "Customer " + i, age, discountType, balance);
+        }
+        boolean same = true;
+        for (int play = 0; play < 500_000; play++) {
+            int i = random.nextInt(customers);
+            view.moveTo(store.findRow(objects[i].getId()));
+            if (random.nextInt(5) == 0) {
+                int amount = random.nextInt(500) - 50;
+                objects[i].addFunds(amount);
+                view.addFunds(amount);
+            } else {
+                ArcadeGame game = games[random.nextInt(games.length)];
+                boolean peak = random.nextBoolean();
+                same &= objects[i].tryChargeAccount(game, peak) == view.tryChargeAccount(game, peak);
+            }
+            same &= objects[i].getBalance() == view.getBalance();
+        }
+        if (same && store.size() == customers + 1) {
+            System.out.println("Test 3 passed");
+        } else {
+            System.err.println("Test 3 failed");
+        }
+
+        // Invalid row
+        try {
+            view.moveTo(store.size());
+            System.err.println("Test 4 failed");
+        } catch (IndexOutOfBoundsException e) {
+            System.out.println("Test 4 passed: " + e.getMessage());
+        }
+    }
+}
@@ -7,7 +7,8 @@
  Date started: 04/05/2025
 
  Description:
- ENUM -
+ ENUM - enumerates the customer discount types, each
+ knows its off-peak discount and overdraft limit
 
 
  History: 04/05/2025 v 1.00
@@ -19,4 +20,22 @@ public enum DiscountType {
     NONE,
     STUDENT,
     STAFF;
+
+    // Applies the additional off-peak discount
+    // rounding down to whole pence
+    public int applyOffPeakDiscount(int price) {
+        return switch (this) {
+            // 0% discount
+            case NONE -> price;
+            // 5% discount
+            case STUDENT -> (int) Math.floor(price * 0.95);
+            // 10% discount
+            case STAFF -> (int) Math.floor(price * 0.9);
+        };
+    }
+
+    // Lowest balance allowed, students may go to -500
+    public int getOverdraftLimit() {
+        return this == STUDENT ? -500 : 0;
+    }
 }
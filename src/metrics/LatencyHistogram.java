@@ -0,0 +1,245 @@
+/*************************************************************************
+
+ File: LatencyHistogram.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Thread safe histogram of non-negative values, such as
+ latencies in nanoseconds, answering percentile queries
+ to within about 3% of the recorded value
+ Recording is a few shifts and one atomic increment with
+ no allocation, so it can sit on a hot path, and threads
+ record into their own stripe so they never contend
+
+
+ Data Structure reasoning:
+ Log linear buckets in the style of HdrHistogram, values
+ below 64 get a bucket each, above that every power of 2
+ range is split into 32 equal buckets, so the whole long
+ range is covered by under 2000 counters in one
+ AtomicLongArray per stripe
+ Stripes are picked by thread, about one per core, so
+ latencies clustered in a few buckets don't have every
+ till incrementing the same counters, reads merge them
+ A percentile walks the merged counters once and reports
+ the highest value in the bucket it lands in
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+    // Member Variables //
+    // Buckets per power of 2 range is 2^(SUB_BUCKET_BITS - 1)
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * HALF_COUNT;
+
+    // Counters and maximum recorded by the threads sharing it
+    private static final class Stripe {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong max = new AtomicLong();
+    }
+
+    private final Stripe[] stripes;
+
+    // Constructor //
+    public LatencyHistogram() {
+        // Power of 2 stripes, at least one per core
+        int stripeCount = 1;
+        while (stripeCount < Runtime.getRuntime().availableProcessors() && stripeCount < 64) {
+            stripeCount <<= 1;
+        }
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // Functions //
+
+    // Records one value, negative values count as 0
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        stripe.counts.getAndIncrement(bucketOf(value));
+        if (value > stripe.max.get()) {
+            stripe.max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    // Total values recorded
+    public long count() {
+        long total = 0;
+        for (long count : merged()) {
+            total += count;
+        }
+        return total;
+    }
+
+    public long max() {
+        long highest = 0;
+        for (Stripe stripe : stripes) {
+            highest = Math.max(highest, stripe.max.get());
+        }
+        return highest;
+    }
+
+    // Every stripe's counts summed per bucket
+    private long[] merged() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (Stripe stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += stripe.counts.get(i);
+            }
+        }
+        return counts;
+    }
+
+    // Value that the given fraction of values are at or
+    // below, fraction between 0 and 1, 0 if nothing recorded
+    public long percentile(double fraction) {
+        return percentiles(fraction)[0];
+    }
+
+    // Several percentiles from one walk over the buckets
+    public long[] percentiles(double... fractions) {
+        long[] snapshot = merged();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+
+        long[] values = new long[fractions.length];
+        if (total == 0) {
+            return values;
+        }
+        long highest = max();
+        for (int f = 0; f < fractions.length; f++) {
+            if (fractions[f] < 0 || fractions[f] > 1) {
+                throw new IllegalArgumentException("Fraction must be between 0 and 1.");
+            }
+            // Nearest rank, at least the first value
+            long rank = Math.max(1, (long) Math.ceil(fractions[f] * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    values[f] = Math.min(highestValueIn(i), highest);
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+
+    // Clears every count
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                stripe.counts.set(i, 0);
+            }
+            stripe.max.set(0);
+        }
+    }
+
+    // --- BUCKET MATHS --- //
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - (SUB_BUCKET_BITS - 1);
+        int top = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_COUNT + (top - HALF_COUNT);
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKET_COUNT) / HALF_COUNT + 1;
+        long top = (bucket - SUB_BUCKET_COUNT) % HALF_COUNT + HALF_COUNT;
+        long highest = ((top + 1) << shift) - 1;
+        // Last bucket reaches past Long.MAX_VALUE
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+
+    // Test harness //
+    public static void main(String[] args) {
+        System.out.println("\nLatencyHistogram Tests:");
+
+        // Every value lands in a bucket containing it
+        boolean contained = true;
+        for (long value = 0; value < 1_000_000; value += 7) {
+            int bucket = bucketOf(value);
+            long lowest = bucket == 0 ? 0 : highestValueIn(bucket - 1) + 1;
+            contained &= lowest <= value && value <= highestValueIn(bucket);
+        }
+        contained &= bucketOf(Long.MAX_VALUE) == BUCKET_COUNT - 1 && highestValueIn(BUCKET_COUNT - 1) == Long.MAX_VALUE;
+        if (contained) {
+            System.out.println("Test 1 passed");
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Percentiles of 1..100000 within 3%
+        // Expected outcome: about 50000, 99000, 99900
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        long[] p = histogram.percentiles(0.5, 0.99, 0.999);
+        if (Math.abs(p[0] - 50_000) < 1_500 && Math.abs(p[1] - 99_000) < 3_000 && Math.abs(p[2] - 99_900) < 3_000
+                && histogram.count() == 100_000 && histogram.max() == 100_000) {
+            System.out.printf("Test 2 passed: p50 = %d, p99 = %d, p99.9 = %d\n", p[0], p[1], p[2]);
+        } else {
+            System.err.printf("Test 2 failed: p50 = %d, p99 = %d, p99.9 = %d\n", p[0], p[1], p[2]);
+        }
+
+        // Empty histogram
+        histogram.reset();
+        if (histogram.percentile(0.99) == 0 && histogram.count() == 0) {
+            System.out.println("Test 3 passed");
+        } else {
+            System.err.println("Test 3 failed");
+        }
+
+        // Several threads recording, merged on read
+        // Expected outcome: 400000 values, max 4000
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long top = (t + 1) * 1_000L;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i % top + 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (histogram.count() == 400_000 && histogram.max() == 4_000) {
+            System.out.println("Test 4 passed: p99 = " + histogram.percentile(0.99));
+        } else {
+            System.err.println("Test 4 failed: count = " + histogram.count() + ", max = " + histogram.max());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*************************************************************************
+
+ File: MetricsReporter.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Periodically prints a text report, e.g. a metrics
+ snapshot, from a daemon thread so a long running
+ simulation or server shows what it's doing without
+ anything on the hot path writing output
+ Closing stops the reports
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package metrics;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class MetricsReporter implements Closeable {
+
+    // Member Variables //
+    private final ScheduledExecutorService scheduler;
+
+    // Constructor //
+    // Prints report to out every periodMillis
+    public MetricsReporter(Supplier<String> report, PrintStream out, long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Period must be positive.");
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> out.println(report.get()),
+                periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Functions //
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
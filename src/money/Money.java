@@ -0,0 +1,123 @@
+/*************************************************************************
+
+ File: Money.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Formats amounts held in pence as pounds and pence, e.g.
+ 1250 as £12.50 and -32 as £-0.32, the same text as
+ String.format("£%.2f", pence / 100.00) but using integer
+ division only, so there's no format string to parse and
+ no floating point conversion
+ Amounts can be appended to a reusable StringBuilder, or
+ written as ASCII into a byte buffer, without allocating
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package money;
+
+public final class Money {
+
+    // Member Variables //
+    public static final char POUND_SIGN = '£';
+    // Longest text putPounds writes, "-92233720368547758.08"
+    public static final int MAX_POUNDS_LENGTH = 21;
+
+    // Constructor //
+    // Static utility, never instantiated
+    private Money() {
+    }
+
+    // Functions //
+
+    // Pence as "£12.50"
+    public static String format(long pence) {
+        return appendMoney(new StringBuilder(12), pence).toString();
+    }
+
+    // Appends pence with the pound sign, e.g. £12.50
+    public static StringBuilder appendMoney(StringBuilder text, long pence) {
+        return appendPounds(text.append(POUND_SIGN), pence);
+    }
+
+    // Appends pence without the pound sign, e.g. 12.50
+    public static StringBuilder appendPounds(StringBuilder text, long pence) {
+        if (pence < 0) {
+            text.append('-');
+        }
+        // Magnitude as unsigned so Long.MIN_VALUE is safe
+        long magnitude = Math.abs(pence);
+        int remainder = (int) Long.remainderUnsigned(magnitude, 100);
+        text.append(Long.divideUnsigned(magnitude, 100)).append('.');
+        if (remainder < 10) {
+            text.append('0');
+        }
+        return text.append(remainder);
+    }
+
+    // Writes pence without the pound sign as ASCII into
+    // bytes from offset, which needs room for
+    // MAX_POUNDS_LENGTH bytes, returns the offset after it
+    public static int putPounds(byte[] bytes, int offset, long pence) {
+        if (pence < 0) {
+            bytes[offset++] = '-';
+        }
+        long magnitude = Math.abs(pence);
+        int remainder = (int) Long.remainderUnsigned(magnitude, 100);
+        long pounds = Long.divideUnsigned(magnitude, 100);
+
+        // Digits of the pounds, written backwards then in place
+        int digits = 1;
+        for (long rest = pounds / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            bytes[i] = (byte) ('0' + pounds % 10);
+            pounds /= 10;
+        }
+        offset += digits;
+        bytes[offset++] = '.';
+        bytes[offset++] = (byte) ('0' + remainder / 10);
+        bytes[offset++] = (byte) ('0' + remainder % 10);
+        return offset;
+    }
+
+    // Test harness //
+    public static void main(String[] args) {
+        System.out.println("\nMoney Tests:");
+
+        // Same text as String.format
+        boolean same = true;
+        long[] edges = {0, -1, 5, -32, 100, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (long pence = -200_000; pence <= 200_000; pence += 3) {
+            same &= format(pence).equals(String.format("£%.2f", pence / 100.00));
+        }
+        for (long pence : edges) {
+            same &= format(pence).equals(String.format("£%.2f", pence / 100.00));
+        }
+        if (same) {
+            System.out.println("Test 1 passed: " + format(-32) + ", " + format(1250));
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Byte buffer matches the StringBuilder form
+        byte[] buffer = new byte[MAX_POUNDS_LENGTH];
+        boolean matches = true;
+        for (long pence : new long[]{0, -5, 1250, Long.MIN_VALUE, Long.MAX_VALUE}) {
+            int end = putPounds(buffer, 0, pence);
+            matches &= new String(buffer, 0, end).equals(appendPounds(new StringBuilder(), pence).toString());
+        }
+        // Expected outcome: -92233720368547758.08
+        int end = putPounds(buffer, 0, Long.MIN_VALUE);
+        if (matches && end == MAX_POUNDS_LENGTH) {
+            System.out.println("Test 2 passed: " + new String(buffer, 0, end));
+        } else {
+            System.err.println("Test 2 failed: " + new String(buffer, 0, end));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*************************************************************************
+
+ File: ParallelReplay.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Replays a transaction log across several cores, rows are
+ hash partitioned by customer ID so each partition applies
+ its customers' NEW_CUSTOMER, ADD_FUNDS and PLAY rows in
+ their original order, while different customers are
+ handled in parallel
+ Games are read only during a replay and every row only
+ touches its own customer, so the final balances and
+ revenue are identical to a sequential simulateFun
+ Per row summaries are not printed as their order across
+ partitions is meaningless
+
+
+ Data Structure reasoning:
+ Rows are handed to each partition in batches through a
+ bounded ArrayBlockingQueue, batching keeps the hand-off
+ cost low and the bound keeps memory flat when the reader
+ gets ahead of the workers
+ A batch is the raw bytes of its rows, the reader only
+ finds the customer ID and copies the row, each worker
+ tokenizes its own batch in place
+ The reader waits on a full queue in short slices, checking
+ the workers in between, so a worker that dies fails the
+ replay instead of leaving the reader blocked forever
+ Plays share no lock, charges are a CAS on the customer,
+ revenue a LongAdder and journal records go to per thread
+ stripes, so partitions scale with cores
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package simulation;
+
+import arcade.Arcade;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class ParallelReplay {
+
+    // Member Variables //
+    // Bytes of rows handed to a partition at a time
+    private static final int BATCH_BYTES = 1 << 15;
+    // Batches queued per partition before the reader waits
+    private static final int QUEUE_CAPACITY = 64;
+    // Marks the end of a partition's rows
+    private static final Batch END = new Batch(0);
+    // Longest the reader waits on a full queue between checks
+    // that its worker is still running
+    private static final long HAND_OFF_MILLIS = 100;
+
+    // Constructor //
+    // Static utility, never instantiated
+    private ParallelReplay() {
+    }
+
+    // Functions //
+
+    // Replays every transaction in the file across the given
+    // number of partitions, then prints the arcade summary
+    public static void replay(Arcade arcade, File transactionFile, int partitions)
+            throws IOException {
+        replay(arcade, transactionFile, partitions, ReportWriter.Mode.VERBOSE);
+    }
+
+    // As above, printing the summary in the given mode
+    public static void replay(Arcade arcade, File transactionFile, int partitions, ReportWriter.Mode mode)
+            throws IOException {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Partitions must be at least 1.");
+        }
+
+        long startTime = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(partitions);
+
+        // One queue and worker per partition
+        List<BlockingQueue<Batch>> queues = new ArrayList<>(partitions);
+        List<Future<Long>> results = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            queues.add(queue);
+            results.add(workers.submit(() -> applyPartition(arcade, queue)));
+        }
+
+        long rowCount = 0;
+        // Empty rows are skipped by the tokenizer
+        try (RowTokenizer row = new RowTokenizer(new FileInputStream(transactionFile), ',')) {
+            Batch[] batches = new Batch[partitions];
+            for (int i = 0; i < partitions; i++) {
+                batches[i] = new Batch(BATCH_BYTES);
+            }
+
+            while (row.next()) {
+                int partition = partitionOf(row, partitions);
+                rowCount++;
+
+                // Hands the batch on once the row won't fit
+                if (!batches[partition].add(row)) {
+                    handOff(queues.get(partition), batches[partition], results);
+                    batches[partition] = new Batch(Math.max(BATCH_BYTES, row.rowLength() + 1));
+                    batches[partition].add(row);
+                }
+            }
+
+            // Remaining partial batches, then end markers
+            for (int i = 0; i < partitions; i++) {
+                if (batches[i].length > 0) {
+                    handOff(queues.get(i), batches[i], results);
+                }
+                handOff(queues.get(i), END, results);
+            }
+
+            // Waits for every partition, surfacing worker failures
+            for (Future<Long> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parallel replay interrupted.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parallel replay failed.", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        long elapsed = System.nanoTime() - startTime;
+        try (ReportWriter out = new ReportWriter(mode)) {
+            out.endLine();
+            out.append("Processed ").append(rowCount).append(" rows across ").append(partitions)
+                    .append(" partitions in ").append(elapsed / 1_000_000).append(" ms, ")
+                    .append(Simulation.rowsPerSecond(rowCount, elapsed)).append(" rows/s").endLine();
+
+            Simulation.printArcadeSummary(arcade, out);
+        }
+    }
+
+    // Queues a batch, surfacing the failure of any worker that
+    // has stopped rather than waiting on a queue it won't drain
+    private static void handOff(BlockingQueue<Batch> queue, Batch batch, List<Future<Long>> results)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, HAND_OFF_MILLIS, TimeUnit.MILLISECONDS)) {
+            for (Future<Long> result : results) {
+                if (result.isDone()) {
+                    // Throws the worker's failure, even an Error
+                    result.get();
+                    throw new IllegalStateException("Partition worker stopped early.");
+                }
+            }
+        }
+    }
+
+    // Applies one partition's rows in order, returns the row count
+    private static long applyPartition(Arcade arcade, BlockingQueue<Batch> queue)
+            throws InterruptedException, IOException {
+        long rows = 0;
+        try (ReportWriter silent = new ReportWriter(OutputStream.nullOutputStream(), ReportWriter.Mode.SILENT)) {
+            while (true) {
+                Batch batch = queue.take();
+                if (batch == END) {
+                    return rows;
+                }
+                RowTokenizer transactionRow = new RowTokenizer(batch.data, batch.length, ',');
+                while (transactionRow.next()) {
+                    Simulation.processTransactionRow(arcade, transactionRow, silent);
+                    rows++;
+                }
+            }
+        }
+    }
+
+    // Every action's second field is the customer ID, rows
+    // without one all go to the first partition
+    private static int partitionOf(RowTokenizer transactionRow, int partitions) {
+        if (transactionRow.fieldCount() < 2) {
+            return 0;
+        }
+        return Math.floorMod(transactionRow.fieldHash(1), partitions);
+    }
+
+    // Newline separated row bytes bound for one partition
+    private static final class Batch {
+        private final byte[] data;
+        private int length;
+
+        private Batch(int capacity) {
+            this.data = new byte[capacity];
+        }
+
+        // Copies the current row in, false if it doesn't fit
+        private boolean add(RowTokenizer row) {
+            int rowLength = row.rowLength();
+            if (length + rowLength + 1 > data.length) {
+                return false;
+            }
+            System.arraycopy(row.buffer(), row.rowStart(), data, length, rowLength);
+            length += rowLength;
+            data[length++] = '\n';
+            return true;
+        }
+    }
+}
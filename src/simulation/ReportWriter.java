@@ -0,0 +1,322 @@
+/*************************************************************************
+
+ File: ReportWriter.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Buffered output sink for simulation reports, lines are
+ appended to a large in memory buffer which is handed to a
+ background thread to encode and write once full, so the
+ simulation never waits on the console
+ Money is appended through Money, as pounds and pence
+ using integer arithmetic, e.g. £12.50 and £-0.32
+ The Mode decides which lines callers should write:
+ VERBOSE, every transaction
+ QUIET, summaries and declined or invalid transactions only
+ SILENT, summaries only
+ A ReportWriter is used by one thread at a time, flush()
+ waits until everything appended so far has been written
+ and reports any write failure, appending never throws so
+ callers' own exception handling is unaffected
+ Text is encoded as UTF-8 unless a charset is given, the
+ console constructor uses the platform charset like System.out
+
+ Data Structure reasoning:
+ Full buffers go through a bounded queue to the writer
+ thread and come back through a pool once written, so a
+ handful of StringBuilders are reused for the whole run
+ and memory stays flat when output is slower than the
+ simulation
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package simulation;
+
+import money.Money;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+public class ReportWriter implements Closeable {
+
+    // Which lines are written
+    public enum Mode {
+        VERBOSE,
+        QUIET,
+        SILENT
+    }
+
+    // Member Variables //
+    // Characters buffered before a hand-off
+    private static final int BUFFER_SIZE = 1 << 16;
+    // Buffers in circulation, including the one being filled
+    private static final int BUFFER_COUNT = 4;
+    // Tells the writer thread to finish
+    private static final Object STOP = new Object();
+
+    private final Mode mode;
+    private final OutputStream out;
+    private final Charset charset;
+    private final BlockingQueue<Object> pending;
+    private final BlockingQueue<StringBuilder> free;
+    private final Thread writerThread;
+    private StringBuilder buffer;
+    private boolean closed;
+    private volatile IOException failure;
+
+    // Constructors //
+    // Reports to System.out in the platform charset
+    public ReportWriter(Mode mode) {
+        this(System.out, mode, Charset.defaultCharset());
+    }
+
+    // Encodes as UTF-8
+    public ReportWriter(OutputStream out, Mode mode) {
+        this(out, mode, StandardCharsets.UTF_8);
+    }
+
+    public ReportWriter(OutputStream out, Mode mode, Charset charset) {
+        this.mode = mode;
+        this.out = out;
+        this.charset = charset;
+        this.pending = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+        this.free = new ArrayBlockingQueue<>(BUFFER_COUNT);
+        for (int i = 1; i < BUFFER_COUNT; i++) {
+            free.add(new StringBuilder(BUFFER_SIZE + 256));
+        }
+        this.buffer = new StringBuilder(BUFFER_SIZE + 256);
+        this.writerThread = new Thread(this::writeLoop, "report-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    // Functions //
+
+    // Whether successful transactions should be reported
+    public boolean logsTransactions() {
+        return mode == Mode.VERBOSE;
+    }
+
+    // Whether declined and invalid transactions should be reported
+    public boolean logsDeclines() {
+        return mode != Mode.SILENT;
+    }
+
+    public ReportWriter append(String text) {
+        buffer.append(text);
+        return this;
+    }
+
+    public ReportWriter append(char c) {
+        buffer.append(c);
+        return this;
+    }
+
+    public ReportWriter append(long value) {
+        buffer.append(value);
+        return this;
+    }
+
+    // Appends pence as pounds, e.g. 1250 as £12.50
+    public ReportWriter appendMoney(long pence) {
+        Money.appendMoney(buffer, pence);
+        return this;
+    }
+
+    // Ends the current line, handing the buffer on once full
+    public void endLine() {
+        buffer.append('\n');
+        if (buffer.length() >= BUFFER_SIZE) {
+            handOff();
+        }
+    }
+
+    public void println(String line) {
+        append(line).endLine();
+    }
+
+    // Waits until everything appended so far is written
+    public void flush() throws IOException {
+        handOff();
+        CountDownLatch written = new CountDownLatch(1);
+        put(written);
+        try {
+            written.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for report output.");
+        }
+        checkFailure();
+    }
+
+    // Writes anything left then stops the writer thread
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        put(STOP);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted closing report output.");
+        }
+        checkFailure();
+    }
+
+    // --- BUFFER HANDLING --- //
+
+    // Queues the current buffer and takes an empty one
+    private void handOff() {
+        if (closed) {
+            throw new IllegalStateException("Report writer is closed.");
+        }
+        if (buffer.length() == 0) {
+            return;
+        }
+        put(buffer);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                buffer = free.take();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Queues an item, output isn't dropped if interrupted
+    private void put(Object item) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                pending.put(item);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs on the writer thread
+    private void writeLoop() {
+        while (true) {
+            Object item;
+            try {
+                item = pending.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                if (item instanceof StringBuilder text) {
+                    if (failure == null) {
+                        out.write(text.toString().getBytes(charset));
+                    }
+                    text.setLength(0);
+                    free.add(text);
+                } else if (item instanceof CountDownLatch written) {
+                    try {
+                        if (failure == null) {
+                            out.flush();
+                        }
+                    } finally {
+                        written.countDown();
+                    }
+                } else if (item == STOP) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Reported by the next flush or close
+                failure = e;
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException failure = this.failure;
+        if (failure != null) {
+            throw new IOException("Report output failed.", failure);
+        }
+    }
+
+    // Accessors //
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nReportWriter Tests:");
+
+        // Money matches "£%.2f" formatting
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        boolean same = true;
+        try (ReportWriter writer = new ReportWriter(bytes, Mode.VERBOSE)) {
+            StringBuilder expected = new StringBuilder();
+            for (int pence = -100_000; pence <= 100_000; pence += 7) {
+                writer.appendMoney(pence).endLine();
+                expected.append(String.format("£%.2f\n", pence / 100.00));
+            }
+            for (int pence : new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1, 5}) {
+                writer.appendMoney(pence).endLine();
+                expected.append(String.format("£%.2f\n", pence / 100.00));
+            }
+            writer.flush();
+            same = bytes.toString(StandardCharsets.UTF_8).equals(expected.toString());
+        }
+        if (same) {
+            System.out.println("Test 1 passed");
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Lines arrive in order across many buffers
+        bytes.reset();
+        try (ReportWriter writer = new ReportWriter(bytes, Mode.QUIET)) {
+            for (int i = 0; i < 100_000; i++) {
+                writer.append("Line ").append(i).endLine();
+            }
+        }
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\n");
+        if (lines.length == 100_000 && lines[99_999].equals("Line 99999")) {
+            System.out.println("Test 2 passed: " + lines[99_999]);
+        } else {
+            System.err.println("Test 2 failed: " + lines.length);
+        }
+
+        // Modes
+        ReportWriter quiet = new ReportWriter(OutputStream.nullOutputStream(), Mode.QUIET);
+        ReportWriter silent = new ReportWriter(OutputStream.nullOutputStream(), Mode.SILENT);
+        if (!quiet.logsTransactions() && quiet.logsDeclines() && !silent.logsDeclines()) {
+            System.out.println("Test 3 passed");
+        } else {
+            System.err.println("Test 3 failed");
+        }
+        quiet.close();
+        silent.close();
+    }
+}
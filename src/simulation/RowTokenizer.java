@@ -0,0 +1,440 @@
+/*************************************************************************
+
+ File: RowTokenizer.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Byte level tokenizer for the '@', '#' and ',' separated
+ input files, reads into one reused buffer and records
+ where each field starts and ends, so ints, enums and
+ keywords are parsed straight from the bytes and a String
+ is only created for fields that need one
+ Rows follow the same rules as trim() then split(separator):
+ blank lines are skipped, fields are not trimmed and
+ trailing empty fields are dropped
+ Invalid numbers and enum names throw the same exceptions,
+ with the same messages, as Integer.parseInt and valueOf
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package simulation;
+
+import arcade.EquipmentType;
+import validation.CompactId;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class RowTokenizer implements Closeable {
+
+    // Member Variables //
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final EquipmentType[] EQUIPMENT_TYPES = EquipmentType.values();
+
+    private final InputStream in;
+    private final byte separator;
+    // Longest line read from the stream, in bytes
+    private final int maxLineLength;
+    private byte[] buffer;
+    // Valid bytes in buffer and the read position
+    private int limit;
+    private int position;
+
+    // Current row, field i spans starts[i] to ends[i]
+    private int[] starts;
+    private int[] ends;
+    private int fieldCount;
+    private int rowStart;
+    private int rowEnd;
+
+    // Scratch space for enum name conversion
+    private final StringBuilder scratch;
+
+    // Constructors //
+    public RowTokenizer(InputStream in, char separator) {
+        this(in, separator, DEFAULT_BUFFER_SIZE);
+    }
+
+    // Smaller buffers suit many short lived streams, such as
+    // sockets, the buffer still grows for longer lines
+    public RowTokenizer(InputStream in, char separator, int bufferSize) {
+        this(in, separator, bufferSize, Integer.MAX_VALUE);
+    }
+
+    // As above, but a line longer than maxLineLength throws
+    // LineTooLongException rather than growing the buffer,
+    // for streams that can't be trusted, such as sockets
+    public RowTokenizer(InputStream in, char separator, int bufferSize, int maxLineLength) {
+        this(in, separator, new byte[Math.max(Math.min(bufferSize, maxLineLength), 16)], 0, maxLineLength);
+    }
+
+    // Tokenizes rows already held in memory, e.g. a batch of lines
+    public RowTokenizer(byte[] data, int length, char separator) {
+        this(null, separator, data, length, Integer.MAX_VALUE);
+    }
+
+    private RowTokenizer(InputStream in, char separator, byte[] buffer, int limit, int maxLineLength) {
+        if (separator > 0x7F) {
+            throw new IllegalArgumentException("Separator must be ASCII.");
+        }
+        if (maxLineLength < 1) {
+            throw new IllegalArgumentException("Maximum line length must be positive.");
+        }
+        this.in = in;
+        this.separator = (byte) separator;
+        this.maxLineLength = maxLineLength;
+        this.buffer = buffer;
+        this.limit = limit;
+        this.position = 0;
+        this.starts = new int[8];
+        this.ends = new int[8];
+        this.scratch = new StringBuilder();
+    }
+
+    // Functions //
+
+    // Moves to the next non blank row, false at end of input
+    public boolean next() throws IOException {
+        while (true) {
+            int lineEnd = findLineEnd();
+            if (lineEnd < 0) {
+                // No full line buffered, read more or take the tail
+                if (!fill()) {
+                    if (position >= limit) {
+                        return false;
+                    }
+                    lineEnd = limit;
+                } else {
+                    continue;
+                }
+            }
+
+            int start = position;
+            position = lineEnd < limit ? lineEnd + 1 : limit;
+            if (tokenize(start, lineEnd)) {
+                return true;
+            }
+        }
+    }
+
+    // Number of fields in the current row
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    // Field as a String
+    public String field(int index) {
+        checkIndex(index);
+        return new String(buffer, starts[index], ends[index] - starts[index], StandardCharsets.UTF_8);
+    }
+
+    // Whole current row after trimming, as a String
+    public String row() {
+        return new String(buffer, rowStart, rowEnd - rowStart, StandardCharsets.UTF_8);
+    }
+
+    // Raw bytes of the current row, used to hand rows on
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int rowStart() {
+        return rowStart;
+    }
+
+    public int rowLength() {
+        return rowEnd - rowStart;
+    }
+
+    // Every field as a String array, as split would return
+    public String[] toArray() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = field(i);
+        }
+        return fields;
+    }
+
+    // Integer field, same rules as Integer.parseInt
+    public int intField(int index) {
+        checkIndex(index);
+        int start = starts[index];
+        int end = ends[index];
+        boolean negative = false;
+        int i = start;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        // Up to 9 digits can't overflow, anything else takes
+        // the slow path which also builds the right exception
+        if (i == end || end - i > 9) {
+            return Integer.parseInt(field(index));
+        }
+        int value = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(field(index));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Case sensitive comparison with an ASCII keyword
+    public boolean fieldEquals(int index, String keyword) {
+        checkIndex(index);
+        int start = starts[index];
+        if (ends[index] - start != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (buffer[start + i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Case insensitive comparison with an ASCII keyword
+    public boolean fieldEqualsIgnoreCase(int index, String keyword) {
+        checkIndex(index);
+        int start = starts[index];
+        if (ends[index] - start != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            if (toUpper(buffer[start + i]) != toUpper((byte) keyword.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // True if the field is empty or only whitespace
+    public boolean isBlank(int index) {
+        checkIndex(index);
+        for (int i = starts[index]; i < ends[index]; i++) {
+            if (!Character.isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Equipment type written in camelCase (headsetOnly) or
+    // enum form (HEADSET_ONLY), a '_' goes between a lower
+    // and upper case letter then the name is upper cased
+    public EquipmentType equipmentField(int index) {
+        checkIndex(index);
+        scratch.setLength(0);
+        byte previous = 0;
+        for (int i = starts[index]; i < ends[index]; i++) {
+            byte current = buffer[i];
+            if (previous >= 'a' && previous <= 'z' && current >= 'A' && current <= 'Z') {
+                scratch.append('_');
+            }
+            scratch.append((char) toUpper(current));
+            previous = current;
+        }
+        for (EquipmentType equipmentType : EQUIPMENT_TYPES) {
+            if (equipmentType.name().contentEquals(scratch)) {
+                return equipmentType;
+            }
+        }
+        // Not found, valueOf builds the usual exception
+        return EquipmentType.valueOf(field(index).replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase());
+    }
+
+    // Field encoded as a CompactId of the given length,
+    // CompactId.INVALID if it isn't a valid ID
+    public long compactIdField(int index, int length) {
+        checkIndex(index);
+        return CompactId.encode(buffer, starts[index], ends[index] - starts[index], length);
+    }
+
+    // Hash of a field's bytes, equal fields hash equally
+    public int fieldHash(int index) {
+        checkIndex(index);
+        int hash = 0;
+        for (int i = starts[index]; i < ends[index]; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        return hash;
+    }
+
+    // True if bytes past the current row are already buffered,
+    // so next() can return without waiting on the stream
+    public boolean hasBufferedInput() {
+        return position < limit;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            in.close();
+        }
+    }
+
+    // --- BUFFER HANDLING --- //
+
+    private int findLineEnd() {
+        for (int i = position; i < limit; i++) {
+            if (buffer[i] == '\n' || buffer[i] == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Reads more input, keeping the unread partial line
+    private boolean fill() throws IOException {
+        if (in == null) {
+            return false;
+        }
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        // Everything buffered is one unfinished line
+        if (limit >= maxLineLength) {
+            throw new LineTooLongException("Line longer than " + maxLineLength + " bytes.");
+        }
+        if (limit == buffer.length) {
+            // Line longer than the buffer
+            buffer = Arrays.copyOf(buffer, (int) Math.min(buffer.length * 2L, Math.max(maxLineLength, 16)));
+        }
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read <= 0) {
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    // Splits the line, returns false if it's blank
+    private boolean tokenize(int start, int end) {
+        // trim()
+        while (start < end && (buffer[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+        rowStart = start;
+        rowEnd = end;
+
+        // split(separator)
+        fieldCount = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == separator) {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        // split drops trailing empty fields
+        while (fieldCount > 0 && starts[fieldCount - 1] == ends[fieldCount - 1]) {
+            fieldCount--;
+        }
+        return true;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for length " + fieldCount);
+        }
+    }
+
+    private static byte toUpper(byte b) {
+        return b >= 'a' && b <= 'z' ? (byte) (b - 32) : b;
+    }
+
+    // Thrown by next() when a line passes the maximum length,
+    // the rest of the stream can't be tokenized after it
+    public static class LineTooLongException extends IOException {
+        public LineTooLongException(String message) {
+            super(message);
+        }
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws IOException {
+        System.out.println("\nRowTokenizer Tests:");
+
+        String input = "  PLAY,A64248,AHW0HK1F03,OFF_PEAK  \r\n\n"
+                + "ADD_FUNDS,174450,-400,,\n"
+                + "x@\"Dance\"@virtualReality@800@12@fullBodyTracking";
+
+        // Same fields as trim() and split()
+        RowTokenizer commas = new RowTokenizer(input.getBytes(StandardCharsets.UTF_8), input.length(), ',');
+        commas.next();
+        String[] first = commas.toArray();
+        commas.next();
+        if (Arrays.equals(first, "PLAY,A64248,AHW0HK1F03,OFF_PEAK".split(","))
+                && Arrays.equals(commas.toArray(), "ADD_FUNDS,174450,-400,,".split(","))
+                && commas.intField(2) == -400) {
+            System.out.println("Test 1 passed: " + Arrays.toString(first));
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Enum and keyword parsing
+        RowTokenizer ats = new RowTokenizer(input.getBytes(StandardCharsets.UTF_8), input.length(), '@');
+        ats.next();
+        ats.next();
+        ats.next();
+        if (ats.equipmentField(5) == EquipmentType.FULL_BODY_TRACKING && ats.fieldEqualsIgnoreCase(2, "VIRTUALREALITY")
+                && !ats.next()) {
+            System.out.println("Test 2 passed");
+        } else {
+            System.err.println("Test 2 failed");
+        }
+
+        // Invalid number, same message as Integer.parseInt
+        // Expected outcome: For input string: "ADD_FUNDS"
+        try {
+            commas.intField(0);
+            System.err.println("Test 3 failed");
+        } catch (NumberFormatException e) {
+            System.out.println("Test 3 passed: " + e.getMessage());
+        }
+
+        // Lines past the maximum length are refused, shorter
+        // ones before them still come through
+        // Expected outcome: first row read, then LineTooLongException
+        String longInput = "PLAY,A1\n" + "X".repeat(100) + "\n";
+        RowTokenizer bounded = new RowTokenizer(
+                new ByteArrayInputStream(longInput.getBytes(StandardCharsets.UTF_8)), ',', 16, 64);
+        boolean firstRow = bounded.next() && bounded.fieldEquals(0, "PLAY");
+        try {
+            bounded.next();
+            System.err.println("Test 4 failed");
+        } catch (LineTooLongException e) {
+            System.out.println((firstRow ? "Test 4 passed: " : "Test 4 failed: ") + e.getMessage());
+        }
+    }
+}
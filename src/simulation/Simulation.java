@@ -32,321 +32,511 @@ import exceptions.AgeLimitException;
 import exceptions.InsufficientBalanceException;
 import exceptions.InvalidCustomerException;
 import exceptions.InvalidGameIdException;
+import validation.IdValidator;
 
 import java.io.*;
 import java.util.*;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 public class Simulation {
 
+    // Member Variables //
+    // Number of rows between throughput reports
+    private static final long PROGRESS_INTERVAL = 1_000_000;
+    // Smallest share of the live games a reload may keep
+    // before the file is taken as truncated or wrong
+    private static final double MIN_RELOAD_FRACTION = 0.5;
+
     // File reading and simulation
-    public static void main(String[] args) throws FileNotFoundException {
+    // optional arguments: number of partitions to replay
+    // transactions across in parallel, --quiet to only
+    // report summaries and declined transactions,
+    // --serve=PORT to serve transactions over TCP instead
+    public static void main(String[] args) throws IOException {
         File customers = new File("customers.txt");
         File games = new File("games.txt");
         File transactions = new File("transactions.txt");
 
+        int partitions = 1;
+        int servePort = -1;
+        ReportWriter.Mode mode = ReportWriter.Mode.VERBOSE;
+        for (String arg : args) {
+            if (arg.equals("--quiet")) {
+                mode = ReportWriter.Mode.QUIET;
+            } else if (arg.startsWith("--serve=")) {
+                servePort = Integer.parseInt(arg.substring("--serve=".length()));
+            } else {
+                partitions = Integer.parseInt(arg);
+            }
+        }
+
         Arcade arcade = initialiseArcade("GameCo Arcade", games, customers);
-        simulateFun(arcade, transactions);
+        if (servePort >= 0) {
+            serve(arcade, servePort);
+        } else if (partitions > 1) {
+            ParallelReplay.replay(arcade, transactions, partitions, mode);
+        } else {
+            simulateFun(arcade, transactions, mode);
+        }
+    }
+
+
+    // Serves transactions on every interface until the
+    // process is stopped
+    private static void serve(Arcade arcade, int port) throws IOException {
+        TransactionServer server = new TransactionServer(arcade, new java.net.InetSocketAddress(port)).start();
+        System.out.println("Serving " + arcade.getName() + " on port " + server.getPort());
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.close();
+        }
     }
 
 
-    // Initialise an instance of arcade
-    public static Arcade initialiseArcade(String arcadeName, File gamesFile, File customerFile) throws FileNotFoundException {
+    // Kept for existing callers, every arcade is now safe to
+    // share so concurrent is ignored
+    @Deprecated
+    public static Arcade initialiseArcade(String arcadeName, File gamesFile, File customerFile, boolean concurrent)
+            throws IOException {
+        return initialiseArcade(arcadeName, gamesFile, customerFile);
+    }
+
+    // Initialise an instance of arcade, it can be shared
+    // between threads
+    public static Arcade initialiseArcade(String arcadeName, File gamesFile, File customerFile) throws IOException {
         // Initialising Arcade
         Arcade arcade = new Arcade(arcadeName);
 
         // --- GAMES PARSING --- //
-        // Inputs file and its separating symbol
-        List<String[]> gameRows = readFileWithSeparators(gamesFile, "@");
-        // loops through all game rooms dynamically assigning
-        // Row values to their fields
-        for (String[] gameRow : gameRows){
-            if (gameRow.length == 0){
-                continue;
-            }
-
-            try {
-
-                String id = gameRow[0];
-                String name = gameRow[1];
+        // Built off to the side then published in one go
+        GameCatalogue.Builder catalogue = new GameCatalogue.Builder();
+        readGames(gamesFile, catalogue::add);
+        arcade.replaceGames(catalogue.build());
 
-                String gameType = gameRow[2].toUpperCase();
 
-                // gameType decides what additional fields get used
-                switch (gameType) {
-                    // Cabinet needs rewardpayout and price
-                    case "CABINET":
-                        int cPrice = Integer.parseInt(gameRow[3]);
-                        boolean hasRewardPayout = Boolean.parseBoolean(gameRow[4]);
+        // --- CUSTOMER PARSING --- //
+        try (RowTokenizer customerRow = new RowTokenizer(new FileInputStream(customerFile), '#')) {
+            while (customerRow.next()) {
+                if (customerRow.fieldCount() == 0){
+                    continue;
+                }
+                try {
+
+                    String id = customerRow.field(0);
+                    String name = customerRow.field(1);
+                    int balance = customerRow.intField(2);
+                    int age = customerRow.intField(3);
+                    // Initialises DiscountType
+                    DiscountType discountType = DiscountType.NONE;
+                    // Checks if there is a 5 cell, if so, checks if blank
+                    // blank => NONE, if not it checks for disocunt type
+                    if ( customerRow.fieldCount() >=5 && !customerRow.isBlank(4)){
+                        if (customerRow.fieldEquals(4, "STAFF")) {
+                            discountType = DiscountType.STAFF;
+                        } else if (customerRow.fieldEquals(4, "STUDENT")) {
+                            discountType = DiscountType.STUDENT;
+                        }
+                    }
 
-                        CabinetGame cabinetGame = new CabinetGame(id, name, cPrice, hasRewardPayout);
-                        arcade.addArcadeGame(cabinetGame);
-                        break;
+                    // Constructor to add customer
+                    Customer customer = new Customer(id, name, age, discountType, balance);
+                    arcade.addCustomer(customer);
 
+                    // Throws exceptions
+                } catch (InvalidCustomerException e) {
+                    System.out.println("Invalid customer ID");
+                } catch (Exception e) {
+                    System.err.println("Error parsing Customer row: " + Arrays.toString(customerRow.toArray()));
+                }
+            }
+        }
 
-                    // Active needs minimum age and price
-                    case "ACTIVE":
-                        int aPrice = Integer.parseInt(gameRow[3]);
-                        int aMinAge = Integer.parseInt(gameRow[4]);
+        return arcade;
+    }
 
-                        ActiveGame activeGame = new ActiveGame(id, name, aPrice, aMinAge);
-                        arcade.addArcadeGame(activeGame);
-                        break;
 
+    public static void simulateFun(Arcade arcade, File transactionFile) throws IOException {
+        simulateFun(arcade, transactionFile, ReportWriter.Mode.VERBOSE);
+    }
 
-                    // VR needs equipment type, minimum age and price
-                    case "VIRTUALREALITY":
-                        int vrPrice = Integer.parseInt(gameRow[3]);
-                        int vrMinAge = Integer.parseInt(gameRow[4]);
+    // As above, reporting to System.out in the given mode
+    public static void simulateFun(Arcade arcade, File transactionFile, ReportWriter.Mode mode) throws IOException {
+        try (ReportWriter out = new ReportWriter(mode)) {
+            simulateFun(arcade, transactionFile, out);
+        }
+    }
 
-                        EquipmentType equipmentType = parseEquipmentType(gameRow[5]);
+    // As above, reporting through out, whose mode decides
+    // which transactions are reported
+    public static void simulateFun(Arcade arcade, File transactionFile, ReportWriter out) throws IOException {
 
-                        VirtualRealityGame virtualRealityGame = new VirtualRealityGame(id, name, vrPrice, vrMinAge, equipmentType);
-                        arcade.addArcadeGame(virtualRealityGame);
-                        break;
+        // --- TRANSACTIONS PARSING --- //
+        // Rows are streamed, each row is parsed and applied
+        // before the next is read so memory use stays flat
+        // however long the transaction log is, fields are
+        // parsed in place from one reused byte buffer
+        long rowCount = 0;
+        long startTime = System.nanoTime();
+        long intervalStart = startTime;
+
+        // Empty rows are skipped by the tokenizer
+        try (RowTokenizer row = new RowTokenizer(new FileInputStream(transactionFile), ',')) {
+            while (row.next()) {
+                processTransactionRow(arcade, row, out);
+                rowCount++;
+
+                // Periodic throughput report
+                if (rowCount % PROGRESS_INTERVAL == 0) {
+                    long now = System.nanoTime();
+                    out.append("Progress: ").append(rowCount).append(" rows, ")
+                            .append(rowsPerSecond(PROGRESS_INTERVAL, now - intervalStart)).append(" rows/s")
+                            .endLine();
+                    intervalStart = now;
                 }
-            // Throws exceptions
-            } catch (InvalidGameIdException e) {
-                System.out.println("Invalid game ID");
-            } catch (IllegalArgumentException e) {
-                System.out.println("Invalid equipment type" + e.getMessage());
-            } catch (Exception e) {
-                System.err.println("Error parsing game row: " + Arrays.toString(gameRow));
             }
         }
 
+        long elapsed = System.nanoTime() - startTime;
+        out.endLine();
+        out.append("Processed ").append(rowCount).append(" rows in ").append(elapsed / 1_000_000)
+                .append(" ms, ").append(rowsPerSecond(rowCount, elapsed)).append(" rows/s").endLine();
 
-        // --- CUSTOMER PARSING --- //
-        List<String[]> customerRows = readFileWithSeparators(customerFile, "#");
-        for (String[] customerRow : customerRows){
-            if (customerRow.length == 0){
-                continue;
-            }
-            try {
+        printArcadeSummary(arcade, out);
+    }
 
-                String id = customerRow[0];
-                String name = customerRow[1];
-                int balance = Integer.parseInt(customerRow[2]);
-                int age = Integer.parseInt(customerRow[3]);
-                // Initialises DiscountType
-                DiscountType discountType = DiscountType.NONE;
-                // Checks if there is a 5 cell, if so, checks if blank
-                // blank => NONE, if not it checks for disocunt type
-                if ( customerRow.length >=5 && !customerRow[4].isBlank()){
-                    switch (customerRow[4]){
-                        case "STAFF":
-                            discountType = DiscountType.STAFF;
-                            break;
 
+    // Helper Functions //
 
-                        case "STUDENT":
-                            discountType = DiscountType.STUDENT;
-                            break;
+    // Prints the arcade statistics after a simulation
+    static void printArcadeSummary(Arcade arcade, ReportWriter out) throws IOException {
+        // --- ARCADE FUNCTIONS --- //
 
-                    }
-                }
+        out.endLine();
+        out.println("--- ARCADE FUNCTIONS ---");
 
-                // Constructor to add customer
-                Customer customer = new Customer(id, name, age, discountType, balance);
-                arcade.addCustomer(customer);
+        // Richest Customer //
+        Customer richest = arcade.findRichestCustomer();
 
-                // Throws exceptions
-            } catch (InvalidCustomerException e) {
-                System.out.println("Invalid customer ID");
-            } catch (Exception e) {
-                System.err.println("Error parsing Customer row: " + Arrays.toString(customerRow));
-            }
+        if (richest == null){
+            out.println("No Customers");
+        } else {
+            out.append("Richest Customer: ID = ").append(richest.getId())
+                    .append(", Name = ").append(richest.getName())
+                    .append(", Balance = ").appendMoney(richest.getBalance()).endLine();
         }
 
-        return arcade;
-    }
+        // Median Game Price //
+        int medianPrice = arcade.getMedianGamePrice();
+        out.append("Median price of game: ").appendMoney(medianPrice).endLine();
 
+        // Count of Each Type of Game //
 
-    public static void simulateFun(Arcade arcade, File transactionFile) throws FileNotFoundException {
+        int[] counts = arcade.countArcadeGames();
+        out.append("Counts: Cabinet = ").append(counts[0]).append(", Active = ").append(counts[1])
+                .append(", VR = ").append(counts[2]).endLine();
 
-        // --- TRANSACTIONS PARSING --- //
-        List<String[]> transactionRows = readFileWithSeparators(transactionFile, ",");
-        for (String[] transactionRow : transactionRows){
-            if (transactionRow.length == 0){
-                continue;
-            }
-            // Simulation action
-            String action = transactionRow[0].toUpperCase();
 
 
-            try {
-                // Goes through the 3 simulation actions
-                // recording a summary as it executes
-                switch (action){
-                    case "NEW_CUSTOMER":{
-                        if (transactionRow.length < 5){
-                            System.out.println("Transactional failure: invalid format");
-                            continue;
-                        }
+        // Corporate jargon //
+        // printed straight to System.out, so earlier lines go first
+        out.flush();
+        Arcade.printCorporateJargon();
 
 
-                        String id = transactionRow[1];
-                        String name = transactionRow[2];
-                        int balance;
-                        int age;
-                        DiscountType discountType = DiscountType.NONE;
-
-                        String discountInput = transactionRow[3].trim().toUpperCase();
-                        try{
-                            if (transactionRow.length == 6) {
-                                switch (discountInput){
-                                    case "STAFF":{
-                                        discountType = DiscountType.STAFF;
-                                    }
-                                    case "STUDENT": {
-                                        discountType = DiscountType.STUDENT;
-                                        break;
-                                    }
-                                    case "NONE": {
-                                        discountType = DiscountType.NONE;
-                                        break;
-                                    }
-                                    default:
-                                        System.out.println("Invalid discount type");
-                                        break;
-                                }
+        // Total Revenue //
+        out.append("Current revenue = ").appendMoney(arcade.getTotalRevenue());
+        out.flush();
+    }
 
-                                balance = Integer.parseInt(transactionRow[4]);
-                                age = Integer.parseInt(transactionRow[5]);
+    // Reads every game in the games file, handing each to
+    // games, bad rows are reported and skipped
+    static void readGames(File gamesFile, GameSink games) throws IOException {
+        readGames(gamesFile, games, false);
+    }
 
-                            } else {
-                                balance = Integer.parseInt(transactionRow[3]);
-                                age = Integer.parseInt(transactionRow[4]);
-                            }
+    // As above, strict refuses the whole file instead, throwing
+    // an IOException for the first bad row or unknown game type
+    static void readGames(File gamesFile, GameSink games, boolean strict) throws IOException {
+        // Inputs file and its separating symbol
+        // loops through all game rooms dynamically assigning
+        // Row values to their fields
+        try (RowTokenizer gameRow = new RowTokenizer(new FileInputStream(gamesFile), '@')) {
+            int rowNumber = 0;
+            while (gameRow.next()) {
+                rowNumber++;
+                if (gameRow.fieldCount() == 0){
+                    continue;
+                }
 
-                            Customer customer = new Customer(id, name, age, discountType, balance);
-                            arcade.addCustomer(customer);
+                try {
 
-                            // Informative summary
-                            System.out.printf("New Customer: ID = %s, Name: %s, Age =%d , Discount = %s, Balance = £%.2f\n",
-                                    id, name, age, discountType.name(), balance/100.00
-                            );
+                    String id = gameRow.field(0);
+                    String name = gameRow.field(1);
 
-                        } catch (NumberFormatException e) {
-                            System.out.println("Transaction failed: invalid format");
-                        }
-                        break;
-                    }
+                    // gameType decides what additional fields get used
+                    // Cabinet needs rewardpayout and price
+                    if (gameRow.fieldEqualsIgnoreCase(2, "CABINET")) {
+                        int cPrice = gameRow.intField(3);
+                        boolean hasRewardPayout = gameRow.fieldEqualsIgnoreCase(4, "true");
 
-                    case "ADD_FUNDS": {
-                        String id = transactionRow[1];
-                        int amount = Integer.parseInt(transactionRow[2]);
+                        CabinetGame cabinetGame = new CabinetGame(id, name, cPrice, hasRewardPayout);
+                        games.add(cabinetGame);
 
-                        Customer customer = arcade.getCustomer(id);
-                        customer.addFunds(amount);
+                    // Active needs minimum age and price
+                    } else if (gameRow.fieldEqualsIgnoreCase(2, "ACTIVE")) {
+                        int aPrice = gameRow.intField(3);
+                        int aMinAge = gameRow.intField(4);
 
-                        // Informative summary
-                        System.out.printf("Add Funds: ID = %s, Amount = £%.2f, Name = %s , Balance = £%.2f\n",
-                                id, amount/100.00, customer.getName(), customer.getBalance()/100.00
-                                );
+                        ActiveGame activeGame = new ActiveGame(id, name, aPrice, aMinAge);
+                        games.add(activeGame);
 
-                        break;
-                    }
+                    // VR needs equipment type, minimum age and price
+                    } else if (gameRow.fieldEqualsIgnoreCase(2, "VIRTUALREALITY")) {
+                        int vrPrice = gameRow.intField(3);
+                        int vrMinAge = gameRow.intField(4);
 
-                    case "PLAY":{
-                        String customerID = transactionRow[1];
-                        String gameID = transactionRow[2];
-                        boolean isPeak = transactionRow[3].equalsIgnoreCase("PEAK");
+                        EquipmentType equipmentType = gameRow.equipmentField(5);
 
-                        arcade.processTransaction(customerID,gameID,isPeak);
+                        VirtualRealityGame virtualRealityGame = new VirtualRealityGame(id, name, vrPrice, vrMinAge, equipmentType);
+                        games.add(virtualRealityGame);
 
-                        // Informative summary
-                        System.out.printf("Process Transaction: Customer ID = %s, Game ID = %s, Peak = %B\n",
-                                customerID, gameID, isPeak
-                                );
-                        break;
+                    } else if (strict) {
+                        throw badGameRow(rowNumber, gameRow, null);
                     }
-
-                    default:
-                        System.out.printf("Invalid Transaction type: %s\n",
-                                action
-                                );
+                // Throws exceptions
+                } catch (IOException e) {
+                    throw e;
+                } catch (InvalidGameIdException e) {
+                    if (strict) {
+                        throw badGameRow(rowNumber, gameRow, e);
+                    }
+                    System.out.println("Invalid game ID");
+                } catch (IllegalArgumentException e) {
+                    if (strict) {
+                        throw badGameRow(rowNumber, gameRow, e);
+                    }
+                    System.out.println("Invalid equipment type" + e.getMessage());
+                } catch (Exception e) {
+                    if (strict) {
+                        throw badGameRow(rowNumber, gameRow, e);
+                    }
+                    System.err.println("Error parsing game row: " + Arrays.toString(gameRow.toArray()));
                 }
-
-            } catch (InvalidGameIdException e) {
-                System.out.println("Transaction failed: game  not found" );
-            } catch (InvalidCustomerException e) {
-                System.out.println("Transaction failed: customer  not found");
-            } catch (AgeLimitException e) {
-                System.out.println("Transaction failed: age is below minimum for game");
-            }  catch (InsufficientBalanceException e) {
-                System.out.println("Transaction failed: lack of funds");
-            } catch (Exception e) {
-                System.out.println("Transaction failed: invalid:" + e.getMessage());
             }
         }
+    }
 
-        // --- ARCADE FUNCTIONS --- //
+    private static IOException badGameRow(int rowNumber, RowTokenizer gameRow, Exception cause) {
+        return new IOException("Bad game row " + rowNumber + ": " + Arrays.toString(gameRow.toArray()), cause);
+    }
 
-        System.out.println("\n--- ARCADE FUNCTIONS ---");
+    // Rebuilds the game catalogue from an updated games file
+    // and swaps it in, plays carry on against the old
+    // catalogue until the swap, returns the number of games
+    // Any bad row, or a file with under half the live games,
+    // throws an IOException and the live catalogue is kept
+    public static int reloadGames(Arcade arcade, File gamesFile) throws IOException {
+        return reloadGames(arcade, gamesFile, false);
+    }
 
-        // Richest Customer //
-        Customer richest = arcade.findRichestCustomer();
+    // As above, allowShrink skips the size check for a
+    // deliberate cut to the games on offer
+    public static int reloadGames(Arcade arcade, File gamesFile, boolean allowShrink) throws IOException {
+        GameCatalogue.Builder builder = new GameCatalogue.Builder();
+        readGames(gamesFile, builder::add, true);
+        GameCatalogue catalogue = builder.build();
+        int live = arcade.getGameCatalogue().size();
+        if (!allowShrink && catalogue.size() < live * MIN_RELOAD_FRACTION) {
+            throw new IOException("Games file has " + catalogue.size() + " games against " + live
+                    + " live, keeping the live catalogue.");
+        }
+        arcade.replaceGames(catalogue);
+        return catalogue.size();
+    }
 
-        if (richest == null){
-            System.out.println("No Customers");
-        } else {
-            System.out.printf("Richest Customer: ID = %s, Name = %s, Balance = £%.2f\n",
-                    richest.getId(), richest.getName(), richest.getBalance()/100.00
-                    );
+    // As above on a background thread, completes with the
+    // number of games once the new catalogue is live
+    public static CompletableFuture<Integer> reloadGamesInBackground(Arcade arcade, File gamesFile) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return reloadGames(arcade, gamesFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Receives each game read from a games file
+    interface GameSink {
+        void add(ArcadeGame game) throws InvalidGameIdException;
+    }
+
+    // Applies a single transaction row to the arcade
+    // recording a summary to out as it executes, as far as
+    // out's mode allows
+    static void processTransactionRow(Arcade arcade, RowTokenizer transactionRow, ReportWriter out) {
+        if (transactionRow.fieldCount() == 0){
+            return;
         }
+        // Simulation action, matched without building a String
+        Action action = Action.of(transactionRow);
+
+
+        try {
+            // Goes through the 3 simulation actions
+            // recording a summary as it executes
+            switch (action){
+                case NEW_CUSTOMER:{
+                    if (transactionRow.fieldCount() < 5){
+                        decline(out, "Transactional failure: invalid format");
+                        return;
+                    }
 
-        // Median Game Price //
-        int medianPrice = arcade.getMedianGamePrice();
-        System.out.printf("Median price of game: £%.2f\n",
-                medianPrice/100.00
-                );
 
-        // Count of Each Type of Game //
+                    String id = transactionRow.field(1);
+                    String name = transactionRow.field(2);
+                    int balance;
+                    int age;
+                    DiscountType discountType = DiscountType.NONE;
 
-        int[] counts = arcade.countArcadeGames();
-        System.out.printf("Counts: Cabinet = %d, Active = %d, VR = %d\n", counts[0], counts[1], counts[2]);
+                    String discountInput = transactionRow.field(3).trim().toUpperCase();
+                    try{
+                        if (transactionRow.fieldCount() == 6) {
+                            switch (discountInput){
+                                case "STAFF":{
+                                    discountType = DiscountType.STAFF;
+                                }
+                                case "STUDENT": {
+                                    discountType = DiscountType.STUDENT;
+                                    break;
+                                }
+                                case "NONE": {
+                                    discountType = DiscountType.NONE;
+                                    break;
+                                }
+                                default:
+                                    decline(out, "Invalid discount type");
+                                    break;
+                            }
 
+                            balance = transactionRow.intField(4);
+                            age = transactionRow.intField(5);
 
+                        } else {
+                            balance = transactionRow.intField(3);
+                            age = transactionRow.intField(4);
+                        }
 
-        // Corporate jargon //
-        Arcade.printCorporateJargon();
+                        Customer customer = new Customer(id, name, age, discountType, balance);
+                        arcade.addCustomer(customer);
 
+                        // Informative summary
+                        if (out.logsTransactions()) {
+                            out.append("New Customer: ID = ").append(id).append(", Name: ").append(name)
+                                    .append(", Age =").append(age).append(" , Discount = ").append(discountType.name())
+                                    .append(", Balance = ").appendMoney(balance).endLine();
+                        }
 
-        // Total Revenue //
-        System.out.printf("Current revenue = £%.2f",
-                arcade.getRevenue()/100.00
-        );
+                    } catch (NumberFormatException e) {
+                        decline(out, "Transaction failed: invalid format");
+                    }
+                    break;
+                }
 
+                case ADD_FUNDS: {
+                    String id = transactionRow.field(1);
+                    int amount = transactionRow.intField(2);
 
-    }
+                    Customer customer = arcade.getCustomer(id);
+                    customer.addFunds(amount);
 
+                    // Informative summary
+                    if (out.logsTransactions()) {
+                        out.append("Add Funds: ID = ").append(id).append(", Amount = ").appendMoney(amount)
+                                .append(", Name = ").append(customer.getName())
+                                .append(" , Balance = ").appendMoney(customer.getBalance()).endLine();
+                    }
 
-    // Helper Functions //
-    private static List<String[]> readFileWithSeparators(File file, String separator) throws FileNotFoundException {
-        // Split file into Array list of rows
-        List<String[]> rows = new ArrayList<>();
-        // In case of exceptions
-        try (Scanner scanner = new Scanner(file)) {
-            // Iterated through all rows
-            while (scanner.hasNextLine()){
-                String row = scanner.nextLine().trim();
-
-                // Skip empty rows
-                if (!row.isEmpty()){
-                    // Separates the elements
-                    String[] cells = row.split(separator);
-                    rows.add(cells);
+                    break;
+                }
+
+                case PLAY:{
+                    // IDs are looked up in their compact form
+                    long customerID = transactionRow.compactIdField(1, IdValidator.CUSTOMER_ID_LENGTH);
+                    long gameID = transactionRow.compactIdField(2, IdValidator.GAME_ID_LENGTH);
+                    boolean isPeak = transactionRow.fieldEqualsIgnoreCase(3, "PEAK");
+
+                    // Declined plays are common, result codes
+                    // avoid throwing an exception for each one
+                    switch (arcade.tryProcessTransaction(customerID, gameID, isPeak)) {
+                        case SUCCESS -> {
+                            // Informative summary
+                            if (out.logsTransactions()) {
+                                out.append("Process Transaction: Customer ID = ").append(transactionRow.field(1))
+                                        .append(", Game ID = ").append(transactionRow.field(2))
+                                        .append(", Peak = ").append(isPeak ? "TRUE" : "FALSE").endLine();
+                            }
+                        }
+                        case INVALID_GAME -> decline(out, "Transaction failed: game  not found");
+                        case INVALID_CUSTOMER -> decline(out, "Transaction failed: customer  not found");
+                        case AGE_LIMIT -> decline(out, "Transaction failed: age is below minimum for game");
+                        case INSUFFICIENT_BALANCE -> decline(out, "Transaction failed: lack of funds");
+                        case JOURNAL_FAILED -> decline(out, "Transaction charged but not journaled");
+                    }
+                    break;
                 }
+
+                default:
+                    decline(out, "Invalid Transaction type: " + transactionRow.field(0).toUpperCase());
             }
+
+        } catch (InvalidGameIdException e) {
+            decline(out, "Transaction failed: game  not found" );
+        } catch (InvalidCustomerException e) {
+            decline(out, "Transaction failed: customer  not found");
+        } catch (AgeLimitException e) {
+            decline(out, "Transaction failed: age is below minimum for game");
+        }  catch (InsufficientBalanceException e) {
+            decline(out, "Transaction failed: lack of funds");
+        } catch (Exception e) {
+            decline(out, "Transaction failed: invalid:" + e.getMessage());
         }
-        return rows;
     }
 
-    private static EquipmentType parseEquipmentType(String input){
-        return EquipmentType.valueOf(input.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase());
+    // Reports a declined or invalid transaction, unless out is silent
+    private static void decline(ReportWriter out, String message) {
+        if (out.logsDeclines()) {
+            out.println(message);
+        }
+    }
 
+    // Rows per second from a row count and elapsed nanoseconds
+    static long rowsPerSecond(long rows, long elapsedNanos) {
+        if (elapsedNanos <= 0) {
+            return rows;
+        }
+        return rows * 1_000_000_000L / elapsedNanos;
+    }
+
+    // Transaction actions, the first field of every row
+    private enum Action {
+        NEW_CUSTOMER, ADD_FUNDS, PLAY, UNKNOWN;
+
+        private static Action of(RowTokenizer transactionRow) {
+            if (transactionRow.fieldEqualsIgnoreCase(0, "PLAY")) {
+                return PLAY;
+            } else if (transactionRow.fieldEqualsIgnoreCase(0, "ADD_FUNDS")) {
+                return ADD_FUNDS;
+            } else if (transactionRow.fieldEqualsIgnoreCase(0, "NEW_CUSTOMER")) {
+                return NEW_CUSTOMER;
+            }
+            return UNKNOWN;
+        }
     }
 
 
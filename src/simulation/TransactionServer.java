@@ -0,0 +1,518 @@
+/*************************************************************************
+
+ File: TransactionServer.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Long running TCP front-end for an Arcade, till devices
+ send transactions one per line in the same shape as
+ transactions.txt:
+ NEW_CUSTOMER,ID,Name[,DiscountType],Balance,Age
+ ADD_FUNDS,ID,Amount
+ PLAY,CustomerID,GameID,PEAK|OFF_PEAK
+ and get one reply line per request, in order:
+ OK, for a NEW_CUSTOMER or PLAY that went through
+ OK <balance>, for ADD_FUNDS, the new balance in pence
+ DECLINED <TransactionResult>, e.g. DECLINED AGE_LIMIT
+ ERROR <message>, for malformed or unknown requests, or a
+ play charged while the arcade's journal has failed
+ Requests may be pipelined, replies are flushed once no
+ more input is waiting, and never before the arcade's
+ journal, if it has one, has the changes they acknowledge
+ on disk, so an OK is never lost to a crash
+ Every connection plays against the arcade at the same
+ time, which any Arcade allows
+
+
+ Data Structure reasoning:
+ Each connection gets its own thread running a plain
+ blocking read, process, reply loop, on a virtual thread
+ when the JVM has them (Java 21+) so tens of thousands of
+ mostly idle tills cost a few KB each rather than a
+ platform thread each, older JVMs fall back to a cached
+ thread pool
+ Connections read through a small RowTokenizer and reply
+ through a small BufferedOutputStream, and PLAY looks IDs
+ up in their compact form, so a request allocates little
+ Request lines are capped at MAX_REQUEST_LENGTH so one
+ client can't grow its read buffer without limit
+ Open sockets are kept in a concurrent set so close() can
+ shut every connection down
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package simulation;
+
+import arcade.ActiveGame;
+import arcade.Arcade;
+import arcade.CabinetGame;
+import arcade.TransactionJournal;
+import arcade.TransactionResult;
+import customer.Customer;
+import customer.DiscountType;
+import validation.IdValidator;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TransactionServer implements Closeable {
+
+    // Member Variables //
+    // Pending connections the OS queues before accept
+    private static final int ACCEPT_BACKLOG = 4096;
+    // Pause after a failed accept, doubled while it keeps failing
+    private static final long ACCEPT_RETRY_MILLIS = 10;
+    private static final long ACCEPT_RETRY_MAX_MILLIS = 1000;
+    // Per connection buffers, requests and replies are short
+    private static final int READ_BUFFER_SIZE = 1 << 10;
+    private static final int WRITE_BUFFER_SIZE = 1 << 10;
+    // Longest request line, a longer one closes the connection
+    // rather than growing the read buffer without limit
+    static final int MAX_REQUEST_LENGTH = 1 << 12;
+    private static final byte[] OK = "OK\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final Arcade arcade;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Set<Socket> openSockets;
+    private final Thread acceptThread;
+    private final LongAdder requests;
+    private volatile boolean closed;
+
+    // Constructors //
+    // Listens on the loopback address, port 0 picks a free port
+    public TransactionServer(Arcade arcade, int port) throws IOException {
+        this(arcade, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public TransactionServer(Arcade arcade, InetSocketAddress address) throws IOException {
+        this.arcade = arcade;
+        this.serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(address, ACCEPT_BACKLOG);
+        this.connections = newConnectionExecutor();
+        this.openSockets = ConcurrentHashMap.newKeySet();
+        this.requests = new LongAdder();
+        this.acceptThread = new Thread(this::acceptLoop, "transaction-server");
+        acceptThread.setDaemon(true);
+    }
+
+    // Functions //
+
+    // Starts accepting connections, returns straight away
+    public TransactionServer start() {
+        acceptThread.start();
+        return this;
+    }
+
+    // Stops accepting, closes every connection and waits for
+    // the accept thread to finish
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        // Wakes the accept thread if it is backing off
+        acceptThread.interrupt();
+        for (Socket socket : openSockets) {
+            closeQuietly(socket);
+        }
+        connections.shutdownNow();
+        try {
+            acceptThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs on the accept thread
+    private void acceptLoop() {
+        long retryMillis = ACCEPT_RETRY_MILLIS;
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+                retryMillis = ACCEPT_RETRY_MILLIS;
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+                // e.g. out of file handles, keep serving the rest
+                // but back off rather than spin on the same error
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                retryMillis = Math.min(retryMillis * 2, ACCEPT_RETRY_MAX_MILLIS);
+                continue;
+            }
+            openSockets.add(socket);
+            try {
+                connections.execute(() -> serve(socket));
+            } catch (RejectedExecutionException e) {
+                // Closing
+                openSockets.remove(socket);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    // Read, process, reply loop for one connection
+    private void serve(Socket socket) {
+        try (socket;
+             RowTokenizer request = new RowTokenizer(socket.getInputStream(), ',', READ_BUFFER_SIZE, MAX_REQUEST_LENGTH)) {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            // Replies wait here until the journal has their changes
+            ByteArrayOutputStream reply = new ByteArrayOutputStream(WRITE_BUFFER_SIZE);
+            StringBuilder text = new StringBuilder(64);
+            try {
+                while (request.next()) {
+                    processRequest(request, reply, text);
+                    requests.increment();
+                    // Replies go out together once pipelined requests run out
+                    if (reply.size() >= WRITE_BUFFER_SIZE || (!request.hasBufferedInput() && in.available() == 0)) {
+                        sendReplies(reply, out, text);
+                    }
+                }
+            } catch (RowTokenizer.LineTooLongException e) {
+                // Earlier requests still get their replies, then
+                // the connection is closed as its stream can't be
+                // read past the long line
+                error(reply, text, "request too long");
+                sendReplies(reply, out, text);
+                // The ERROR goes out ahead of the close
+                socket.shutdownOutput();
+            }
+            sendReplies(reply, out, text);
+        } catch (IOException e) {
+            // Connection dropped, nothing to reply to
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    // Sends the buffered replies once the arcade's journal has
+    // every change they acknowledge on disk, one commit covers
+    // every connection waiting at the time, if the journal
+    // failed they're replaced by an ERROR and the connection
+    // is closed
+    private void sendReplies(ByteArrayOutputStream reply, OutputStream out, StringBuilder text) throws IOException {
+        if (reply.size() == 0) {
+            return;
+        }
+        try {
+            arcade.awaitJournal();
+        } catch (IOException e) {
+            reply.reset();
+            error(reply, text, "journal failed, unacknowledged requests may be lost");
+            reply.writeTo(out);
+            out.flush();
+            throw e;
+        }
+        reply.writeTo(out);
+        out.flush();
+        reply.reset();
+    }
+
+    // Applies one request to the arcade and writes its reply
+    void processRequest(RowTokenizer request, OutputStream reply, StringBuilder text) throws IOException {
+        try {
+            if (request.fieldEqualsIgnoreCase(0, "PLAY")) {
+                if (request.fieldCount() < 4) {
+                    error(reply, text, "invalid format");
+                    return;
+                }
+                long customerID = request.compactIdField(1, IdValidator.CUSTOMER_ID_LENGTH);
+                long gameID = request.compactIdField(2, IdValidator.GAME_ID_LENGTH);
+                boolean isPeak = request.fieldEqualsIgnoreCase(3, "PEAK");
+
+                TransactionResult result = arcade.tryProcessTransaction(customerID, gameID, isPeak);
+                if (result.isSuccess()) {
+                    reply.write(OK);
+                } else if (result == TransactionResult.JOURNAL_FAILED) {
+                    // Charged, but not safe to acknowledge as OK
+                    error(reply, text, "play charged but not journaled");
+                } else {
+                    write(reply, text.append("DECLINED ").append(result.name()));
+                }
+
+            } else if (request.fieldEqualsIgnoreCase(0, "ADD_FUNDS")) {
+                if (request.fieldCount() < 3) {
+                    error(reply, text, "invalid format");
+                    return;
+                }
+                Customer customer = arcade.getCustomer(request.field(1));
+                // The balance this top up made, not a later one
+                int balance = customer.addFundsAndGet(request.intField(2));
+                write(reply, text.append("OK ").append(balance));
+
+            } else if (request.fieldEqualsIgnoreCase(0, "NEW_CUSTOMER")) {
+                int count = request.fieldCount();
+                if (count != 5 && count != 6) {
+                    error(reply, text, "invalid format");
+                    return;
+                }
+                DiscountType discountType = count == 6
+                        ? DiscountType.valueOf(request.field(3).trim().toUpperCase())
+                        : DiscountType.NONE;
+                int balance = request.intField(count - 2);
+                int age = request.intField(count - 1);
+                arcade.addCustomer(new Customer(request.field(1), request.field(2), age, discountType, balance));
+                reply.write(OK);
+
+            } else {
+                error(reply, text, "unknown transaction type");
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            error(reply, text, e.getMessage());
+        }
+    }
+
+    private static void error(OutputStream reply, StringBuilder text, String message) throws IOException {
+        // Replies are one line, messages may span several
+        String line = message == null ? "invalid request" : message.replace('\n', ' ').replace('\r', ' ');
+        write(reply, text.append("ERROR ").append(line));
+    }
+
+    // Writes text as a reply line and clears it
+    private static void write(OutputStream reply, StringBuilder text) throws IOException {
+        text.append('\n');
+        reply.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        text.setLength(0);
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Already closing
+        }
+    }
+
+    // A virtual thread per task where the JVM supports them,
+    // looked up reflectively so the code still builds and
+    // runs on older JVMs with a cached thread pool instead
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "transaction-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // Accessors //
+
+    // Port being listened on, useful when started on port 0
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getOpenConnections() {
+        return openSockets.size();
+    }
+
+    // Requests handled since starting
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws Exception {
+        System.out.println("\nTransactionServer Tests:");
+
+        Arcade arcade = new Arcade("Server Arcade");
+        arcade.addArcadeGame(new CabinetGame("C12345ABCD", "Cabinet", 100, false));
+        arcade.addArcadeGame(new ActiveGame("A12345ABCD", "Active", 200, 18));
+
+        try (TransactionServer server = new TransactionServer(arcade, 0).start()) {
+
+            // One of each request and reply over localhost
+            // Expected outcome: OK, OK 1500, OK, DECLINED AGE_LIMIT, ERROR
+            String[] replies;
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                 PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                String[] requests = {
+                        "NEW_CUSTOMER,Z00001,Tester,STUDENT,1000,16",
+                        "ADD_FUNDS,Z00001,500",
+                        "PLAY,Z00001,C12345ABCD,OFF_PEAK",
+                        "PLAY,Z00001,A12345ABCD,PEAK",
+                        "DANCE,Z00001"
+                };
+                replies = new String[requests.length];
+                for (int i = 0; i < requests.length; i++) {
+                    out.println(requests[i]);
+                    replies[i] = in.readLine();
+                }
+            }
+            if (replies[0].equals("OK") && replies[1].equals("OK 1500") && replies[2].equals("OK")
+                    && replies[3].equals("DECLINED AGE_LIMIT") && replies[4].startsWith("ERROR")) {
+                System.out.println("Test 1 passed: " + String.join(", ", replies));
+            } else {
+                System.err.println("Test 1 failed: " + String.join(", ", replies));
+            }
+
+            // Many concurrent connections, pipelined requests
+            // Expected outcome: every play charged, revenue adds up
+            int clients = 200;
+            int plays = 50;
+            long revenueBefore = arcade.getTotalRevenue();
+            ExecutorService tills = newConnectionExecutor();
+            Future<?>[] done = new Future<?>[clients];
+            for (int c = 0; c < clients; c++) {
+                String id = String.format("Y%05d", c);
+                done[c] = tills.submit(() -> {
+                    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                         PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                         BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                        out.println("NEW_CUSTOMER," + id + ",Till," + (plays * 100) + ",30");
+                        for (int p = 0; p < plays; p++) {
+                            out.println("PLAY," + id + ",C12345ABCD,PEAK");
+                        }
+                        out.flush();
+                        int ok = 0;
+                        for (int r = 0; r <= plays; r++) {
+                            if ("OK".equals(in.readLine())) {
+                                ok++;
+                            }
+                        }
+                        return ok;
+                    }
+                });
+            }
+            int ok = 0;
+            for (Future<?> client : done) {
+                ok += (Integer) client.get();
+            }
+            tills.shutdown();
+            long revenue = arcade.getTotalRevenue() - revenueBefore;
+            if (ok == clients * (plays + 1) && revenue == clients * plays * 100) {
+                System.out.println("Test 2 passed: " + ok + " replies, revenue = " + revenue);
+            } else {
+                System.err.println("Test 2 failed: " + ok + " replies, revenue = " + revenue);
+            }
+        }
+
+        // Concurrent top ups to one customer each reply with
+        // the balance their own top up made
+        // Expected outcome: every balance 1001..2000 exactly once
+        Arcade shared = new Arcade("Top Up Arcade");
+        shared.addCustomer(new Customer("X00001", "Shared", 30, DiscountType.NONE, 1000));
+        try (TransactionServer server = new TransactionServer(shared, 0).start()) {
+            int clients = 20;
+            int topUps = 50;
+            ExecutorService tills = newConnectionExecutor();
+            List<Future<List<Integer>>> done = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                done.add(tills.submit(() -> {
+                    List<Integer> balances = new ArrayList<>();
+                    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                         PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                         BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                        for (int t = 0; t < topUps; t++) {
+                            out.println("ADD_FUNDS,X00001,1");
+                        }
+                        out.flush();
+                        for (int t = 0; t < topUps; t++) {
+                            balances.add(Integer.parseInt(in.readLine().substring(3)));
+                        }
+                    }
+                    return balances;
+                }));
+            }
+            Set<Integer> seen = new HashSet<>();
+            int replies = 0;
+            for (Future<List<Integer>> client : done) {
+                for (int balance : client.get()) {
+                    replies++;
+                    if (balance > 1000 && balance <= 1000 + clients * topUps) {
+                        seen.add(balance);
+                    }
+                }
+            }
+            tills.shutdown();
+            if (replies == clients * topUps && seen.size() == replies) {
+                System.out.println("Test 3 passed: " + seen.size() + " distinct balances");
+            } else {
+                System.err.println("Test 3 failed: " + seen.size() + " distinct of " + replies);
+            }
+        }
+
+        // Replies wait for the journal, a reply that arrives
+        // long before the background flush is already on disk
+        // Expected outcome: OK replies, both records replayed
+        Path journalFile = Files.createTempFile("server", ".journal");
+        Arcade journaled = new Arcade("Journaled Arcade");
+        journaled.addArcadeGame(new CabinetGame("CB12345678", "Cabinet", 100, false));
+        try (TransactionJournal journal = TransactionJournal.open(journalFile, 1_000_000, 60_000)) {
+            journaled.setJournal(journal);
+            String[] replies = new String[2];
+            try (TransactionServer server = new TransactionServer(journaled, 0).start();
+                 Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                 PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                out.println("NEW_CUSTOMER,W00001,Durable,500,30");
+                replies[0] = in.readLine();
+                out.println("PLAY,W00001,CB12345678,PEAK");
+                replies[1] = in.readLine();
+            }
+            Arcade recovered = new Arcade("Recovered Arcade");
+            recovered.addArcadeGame(new CabinetGame("CB12345678", "Cabinet", 100, false));
+            long records = TransactionJournal.replay(journalFile, recovered);
+            if ("OK".equals(replies[0]) && "OK".equals(replies[1]) && records == 2
+                    && recovered.getCustomer("W00001").getBalance() == 400) {
+                System.out.println("Test 4 passed: " + records + " records on disk before close");
+            } else {
+                System.err.println("Test 4 failed: " + replies[0] + ", " + replies[1] + ", " + records + " records");
+            }
+        }
+        Files.delete(journalFile);
+
+        // A request line past the maximum length gets an ERROR
+        // and the connection is closed
+        // Expected outcome: OK, ERROR request too long, end of stream
+        try (TransactionServer server = new TransactionServer(new Arcade("Long Line Arcade"), 0).start();
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            out.println("NEW_CUSTOMER,V00001,Long,500,30");
+            String first = in.readLine();
+            out.println("PLAY,V00001," + "X".repeat(MAX_REQUEST_LENGTH) + ",PEAK");
+            String second = in.readLine();
+            String third = in.readLine();
+            if ("OK".equals(first) && "ERROR request too long".equals(second) && third == null) {
+                System.out.println("Test 5 passed: " + second);
+            } else {
+                System.err.println("Test 5 failed: " + first + ", " + second + ", " + third);
+            }
+        }
+
+        // Any arcade can be served, none are refused
+        try (TransactionServer plain = new TransactionServer(new Arcade("Plain Arcade"), 0).start()) {
+            System.out.println("Test 6 passed: port " + plain.getPort());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Test 6 failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,706 @@
+/*************************************************************************
+
+ File: WorkloadGenerator.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Writes synthetic games, customers and transactions files,
+ in the '@', '#' and ',' formats Simulation reads, at any
+ scale for load tests and benchmarks
+ Everything comes from one seed, so the same settings
+ always write byte for byte the same files
+ Settings, each with a sensible default:
+ counts of games, customers and transaction rows
+ mix of Cabinet / Active / VR games, EquipmentTypes and
+ DiscountTypes, as relative weights
+ Zipf skew of game and customer popularity, 0 is uniform,
+ around 1 is typical of real traffic
+ decline rate, the fraction of PLAY rows declined for age
+ or lack of funds
+ invalid rate, the fraction of rows in every file with a
+ malformed or unknown ID
+ peak, ADD_FUNDS and NEW_CUSTOMER rates
+ Ordinary customers are adults with enough funds, the
+ generator charges them as the arcade would and writes a
+ top up ADD_FUNDS before any play they couldn't afford, so
+ only the plays meant to decline do
+ Declines come from small pools of minors, who play age
+ limited games, and broke customers, who have no balance
+
+ Usage:
+ java simulation.WorkloadGenerator directory customers [seed]
+ writes games.txt, customers.txt and transactions.txt with
+ one transaction per customer and one game per 100
+ customers, with no arguments runs the test harness
+
+
+ Data Structure reasoning:
+ Customers are mirrored in a CustomerStore, struct of
+ arrays, so millions of balances cost a few bytes each and
+ charges follow exactly the arcade's pricing rules
+ Zipf ranks are drawn from a cumulative distribution array
+ with a binary search, O(log n) a draw, and ranks map to
+ items through a seeded shuffle so the popular IDs are
+ spread out rather than the first ones
+ IDs are indexes multiplied by a constant coprime with the
+ ID space, a bijection, so IDs look random but are unique
+ without a set to check them against
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package simulation;
+
+import arcade.*;
+import customer.Customer;
+import customer.CustomerStore;
+import customer.DiscountType;
+import exceptions.InvalidCustomerException;
+import exceptions.InvalidGameIdException;
+import validation.IdValidator;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+public class WorkloadGenerator {
+
+    // Member Variables //
+    private static final String[] FIRST_NAMES = {"Alex", "Sam", "Jordan", "Priya", "Chen", "Amara", "Luca",
+            "Sofia", "Noah", "Fatima", "Oliver", "Mei", "Kofi", "Isla", "Mateo", "Hannah"};
+    private static final String[] LAST_NAMES = {"Smith", "Patel", "Okafor", "Nguyen", "Garcia", "Jones",
+            "Kowalski", "Murphy", "Rossi", "Khan", "Taylor", "Silva", "Brown", "Novak", "Ahmed", "Evans"};
+    private static final String[] EQUIPMENT_NAMES = {"headsetOnly", "headsetAndController", "fullBodyTracking"};
+    private static final EquipmentType[] EQUIPMENT_TYPES = {EquipmentType.HEADSET_ONLY,
+            EquipmentType.HEADSET_AND_CONTROLLER, EquipmentType.FULL_BODY_TRACKING};
+    private static final DiscountType[] DISCOUNT_TYPES = {DiscountType.NONE, DiscountType.STAFF,
+            DiscountType.STUDENT};
+
+    // ID spaces and multipliers coprime with them
+    private static final long CUSTOMER_ID_SPACE = pow36(IdValidator.CUSTOMER_ID_LENGTH);
+    private static final long GAME_ID_SPACE = pow36(IdValidator.GAME_ID_LENGTH - 2);
+    private static final long ID_MULTIPLIER = 1_000_000_007L;
+
+    // Games are priced from MIN_PRICE, age limited games
+    // need at least MIN_AGE_LIMIT, regular customers are
+    // ADULT_AGE or over and minors under MIN_AGE_LIMIT
+    private static final int MIN_PRICE = 50;
+    private static final int MIN_AGE_LIMIT = 12;
+    private static final int ADULT_AGE = 18;
+
+    private final long seed;
+    private int gameCount = 100;
+    private int customerCount = 10_000;
+    private long transactionCount = 10_000;
+    private int[] gameMix = {1, 1, 1};
+    private int[] equipmentMix = {1, 1, 1};
+    private int[] discountMix = {6, 2, 2};
+    private double gameSkew = 1.0;
+    private double customerSkew = 1.0;
+    private double declineRate = 0.05;
+    private double invalidRate = 0.01;
+    private double peakRate = 0.5;
+    private double addFundsRate = 0.05;
+    private double newCustomerRate = 0.005;
+
+    // Constructor //
+    public WorkloadGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    // Functions //
+
+    // --- SETTINGS --- //
+
+    public WorkloadGenerator games(int count) {
+        this.gameCount = atLeast(count, 1, "Game count");
+        return this;
+    }
+
+    // At least 10, a few are set aside as minors and broke
+    // customers for declined plays
+    public WorkloadGenerator customers(int count) {
+        if (count < 10 || count >= CUSTOMER_ID_SPACE / 4) {
+            throw new IllegalArgumentException("Customer count must be between 10 and " + CUSTOMER_ID_SPACE / 4 + ".");
+        }
+        this.customerCount = count;
+        return this;
+    }
+
+    public WorkloadGenerator transactions(long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Transaction count can't be negative.");
+        }
+        this.transactionCount = count;
+        return this;
+    }
+
+    // Relative weights of Cabinet, Active and VR games
+    public WorkloadGenerator gameMix(int cabinet, int active, int virtualReality) {
+        this.gameMix = weights(cabinet, active, virtualReality);
+        return this;
+    }
+
+    // Relative weights of headset only, headset and controller
+    // and full body tracking VR games
+    public WorkloadGenerator equipmentMix(int headsetOnly, int headsetAndController, int fullBodyTracking) {
+        this.equipmentMix = weights(headsetOnly, headsetAndController, fullBodyTracking);
+        return this;
+    }
+
+    // Relative weights of NONE, STAFF and STUDENT customers
+    public WorkloadGenerator discountMix(int none, int staff, int student) {
+        this.discountMix = weights(none, staff, student);
+        return this;
+    }
+
+    // Zipf exponent of game popularity, 0 for uniform
+    public WorkloadGenerator gameSkew(double exponent) {
+        this.gameSkew = nonNegative(exponent, "Game skew");
+        return this;
+    }
+
+    // Zipf exponent of customer activity, 0 for uniform
+    public WorkloadGenerator customerSkew(double exponent) {
+        this.customerSkew = nonNegative(exponent, "Customer skew");
+        return this;
+    }
+
+    // Fraction of PLAY rows with valid IDs that decline
+    public WorkloadGenerator declineRate(double rate) {
+        this.declineRate = fraction(rate, "Decline rate");
+        return this;
+    }
+
+    // Fraction of rows in every file with an invalid ID
+    public WorkloadGenerator invalidRate(double rate) {
+        this.invalidRate = fraction(rate, "Invalid rate");
+        return this;
+    }
+
+    // Fraction of plays at peak time
+    public WorkloadGenerator peakRate(double rate) {
+        this.peakRate = fraction(rate, "Peak rate");
+        return this;
+    }
+
+    // Fraction of transactions that are ADD_FUNDS, not
+    // counting top ups
+    public WorkloadGenerator addFundsRate(double rate) {
+        this.addFundsRate = fraction(rate, "ADD_FUNDS rate");
+        return this;
+    }
+
+    // Fraction of transactions that are NEW_CUSTOMER
+    public WorkloadGenerator newCustomerRate(double rate) {
+        this.newCustomerRate = fraction(rate, "NEW_CUSTOMER rate");
+        return this;
+    }
+
+    // --- GENERATION --- //
+
+    // Writes all 3 files, returns what was written
+    public Summary write(File gamesFile, File customersFile, File transactionsFile) throws IOException {
+        if (invalidRate + addFundsRate + newCustomerRate > 1) {
+            throw new IllegalArgumentException("Invalid, ADD_FUNDS and NEW_CUSTOMER rates add up to over 1.");
+        }
+        Random random = new Random(seed);
+        Summary summary = new Summary();
+
+        ArcadeGame[] games = writeGames(gamesFile, random, summary);
+        CustomerStore customers = writeCustomers(customersFile, random, summary);
+        writeTransactions(transactionsFile, random, games, customers, summary);
+        return summary;
+    }
+
+    private ArcadeGame[] writeGames(File file, Random random, Summary summary) throws IOException {
+        ArcadeGame[] games = new ArcadeGame[gameCount];
+        try (Writer out = writer(file)) {
+            StringBuilder row = new StringBuilder(96);
+            for (int i = 0; i < gameCount; i++) {
+                int type = pick(gameMix, random);
+                int price = MIN_PRICE + random.nextInt(20) * 25;
+                int minAge = MIN_AGE_LIMIT + random.nextInt(ADULT_AGE - MIN_AGE_LIMIT + 1);
+                String id = gameId(i, type);
+                String name = "Game " + i;
+
+                row.setLength(0);
+                try {
+                    switch (type) {
+                        case 0 -> {
+                            boolean hasRewardPayout = random.nextBoolean();
+                            games[i] = new CabinetGame(id, name, price, hasRewardPayout);
+                            row.append(id).append("@\"").append(name).append("\"@cabinet@").append(price)
+                                    .append('@').append(hasRewardPayout);
+                        }
+                        case 1 -> {
+                            games[i] = new ActiveGame(id, name, price, minAge);
+                            row.append(id).append("@\"").append(name).append("\"@active@").append(price)
+                                    .append('@').append(minAge);
+                        }
+                        default -> {
+                            int equipment = pick(equipmentMix, random);
+                            games[i] = new VirtualRealityGame(id, name, price, minAge, EQUIPMENT_TYPES[equipment]);
+                            row.append(id).append("@\"").append(name).append("\"@virtualReality@").append(price)
+                                    .append('@').append(minAge).append('@').append(EQUIPMENT_NAMES[equipment]);
+                        }
+                    }
+                } catch (InvalidGameIdException e) {
+                    throw new IllegalStateException("Generated an invalid game ID " + id, e);
+                }
+                out.append(row).append('\n');
+                summary.games++;
+
+                // Same game under a prefix its type doesn't allow
+                if (random.nextDouble() < invalidRate) {
+                    out.append('X').append(row, 1, row.length()).append('\n');
+                    summary.invalidRows++;
+                }
+            }
+        }
+        return games;
+    }
+
+    // Rows from the end are minors and broke customers, the
+    // rest are regulars
+    private CustomerStore writeCustomers(File file, Random random, Summary summary) throws IOException {
+        CustomerStore customers = new CustomerStore();
+        int reserved = reservedCustomers();
+        try (Writer out = writer(file)) {
+            StringBuilder row = new StringBuilder(64);
+            for (int i = 0; i < customerCount; i++) {
+                String id = customerId(i);
+                String name = name(random);
+                int age;
+                int balance;
+                DiscountType discountType;
+                if (i >= customerCount - reserved) {
+                    // Minors, then broke adults
+                    boolean minor = i < customerCount - reserved / 2;
+                    age = minor ? 5 + random.nextInt(MIN_AGE_LIMIT - 5) : ADULT_AGE + random.nextInt(50);
+                    balance = minor ? 500 + random.nextInt(5_000) : 0;
+                    discountType = DiscountType.NONE;
+                } else {
+                    age = ADULT_AGE + random.nextInt(60);
+                    balance = random.nextInt(100) * 50;
+                    discountType = DISCOUNT_TYPES[pick(discountMix, random)];
+                }
+
+                try {
+                    customers.add(id, name, age, discountType, balance);
+                } catch (InvalidCustomerException e) {
+                    throw new IllegalStateException("Generated an invalid customer ID " + id, e);
+                }
+                row.setLength(0);
+                row.append(id).append('#').append(name).append('#').append(balance).append('#').append(age);
+                if (discountType != DiscountType.NONE) {
+                    row.append('#').append(discountType.name());
+                }
+                out.append(row).append('\n');
+                summary.customers++;
+
+                // Same customer with a one character short ID
+                if (random.nextDouble() < invalidRate) {
+                    out.append(row, 1, row.length()).append('\n');
+                    summary.invalidRows++;
+                }
+            }
+        }
+        return customers;
+    }
+
+    private void writeTransactions(File file, Random random, ArcadeGame[] games, CustomerStore customers,
+                                   Summary summary) throws IOException {
+        int reserved = reservedCustomers();
+        int regulars = customerCount - reserved;
+        int minors = reserved / 2;
+        Zipf gameRanks = new Zipf(gameCount, gameSkew, random);
+        Zipf customerRanks = new Zipf(regulars, customerSkew, random);
+
+        // Age limited games, for plays by minors
+        int[] ageLimited = new int[gameCount];
+        int ageLimitedCount = 0;
+        for (int i = 0; i < gameCount; i++) {
+            if (games[i] instanceof ActiveGame) {
+                ageLimited[ageLimitedCount++] = i;
+            }
+        }
+
+        try (Writer out = writer(file)) {
+            StringBuilder row = new StringBuilder(64);
+            int newCustomers = 0;
+            long rows = 0;
+            while (rows < transactionCount) {
+                row.setLength(0);
+                double action = random.nextDouble();
+
+                if (action < invalidRate) {
+                    invalidTransaction(row, random, games, gameRanks, customerRanks);
+                    summary.invalidRows++;
+
+                } else if (action < invalidRate + newCustomerRate) {
+                    // IDs after the customers file's, never played
+                    String id = customerId(customerCount + newCustomers++);
+                    DiscountType discountType = DISCOUNT_TYPES[pick(discountMix, random)];
+                    row.append("NEW_CUSTOMER,").append(id).append(',').append(name(random)).append(',');
+                    if (discountType != DiscountType.NONE) {
+                        row.append(discountType.name()).append(',');
+                    }
+                    row.append(random.nextInt(100) * 50).append(',').append(ADULT_AGE + random.nextInt(60));
+                    summary.newCustomers++;
+
+                } else if (action < invalidRate + newCustomerRate + addFundsRate) {
+                    int customer = customerRanks.next(random);
+                    int amount = 500 + random.nextInt(20) * 250;
+                    customers.addFunds(customer, amount);
+                    addFunds(row, customers.getId(customer), amount);
+                    summary.addFunds++;
+
+                } else {
+                    boolean peak = random.nextDouble() < peakRate;
+                    if (random.nextDouble() < declineRate) {
+                        // Declined, a minor on an age limited game
+                        // when there is one, otherwise a broke customer
+                        int customer;
+                        int game;
+                        if (ageLimitedCount > 0 && random.nextBoolean()) {
+                            customer = regulars + random.nextInt(minors);
+                            game = ageLimited[random.nextInt(ageLimitedCount)];
+                        } else {
+                            customer = regulars + minors + random.nextInt(reserved - minors);
+                            game = gameRanks.next(random);
+                        }
+                        play(row, customers.getId(customer), games[game].getId(), peak);
+                        summary.plays++;
+                        summary.declinedPlays++;
+                    } else {
+                        int customer = customerRanks.next(random);
+                        ArcadeGame game = games[gameRanks.next(random)];
+                        if (customers.tryChargeAccount(customer, game, peak) == Customer.DECLINED_INSUFFICIENT_BALANCE) {
+                            // Top up first so the play goes through
+                            int amount = 1_000 + random.nextInt(20) * 250;
+                            customers.addFunds(customer, amount);
+                            addFunds(row, customers.getId(customer), amount);
+                            out.append(row).append('\n');
+                            rows++;
+                            summary.addFunds++;
+                            if (rows == transactionCount) {
+                                break;
+                            }
+                            row.setLength(0);
+                            customers.tryChargeAccount(customer, game, peak);
+                        }
+                        play(row, customers.getId(customer), game.getId(), peak);
+                        summary.plays++;
+                    }
+                }
+                out.append(row).append('\n');
+                rows++;
+            }
+            summary.transactions = rows;
+        }
+    }
+
+    // A PLAY with one of: a malformed customer ID, an unknown
+    // customer, a malformed game ID or an unknown game
+    private void invalidTransaction(StringBuilder row, Random random, ArcadeGame[] games, Zipf gameRanks,
+                                    Zipf customerRanks) {
+        String customerID = customerId(customerRanks.next(random));
+        String gameID = games[gameRanks.next(random)].getId();
+        switch (random.nextInt(4)) {
+            case 0 -> customerID = customerID.substring(1) + "-";
+            case 1 -> customerID = customerId((int) (CUSTOMER_ID_SPACE / 2) + random.nextInt(customerCount));
+            case 2 -> gameID = gameID.substring(0, gameID.length() - 1);
+            default -> gameID = gameId(gameCount + random.nextInt(gameCount), 0);
+        }
+        play(row, customerID, gameID, random.nextBoolean());
+    }
+
+    private static void play(StringBuilder row, String customerID, String gameID, boolean peak) {
+        row.append("PLAY,").append(customerID).append(',').append(gameID).append(',')
+                .append(peak ? "PEAK" : "OFF_PEAK");
+    }
+
+    private static void addFunds(StringBuilder row, String customerID, int amount) {
+        row.append("ADD_FUNDS,").append(customerID).append(',').append(amount);
+    }
+
+    // Minors and broke customers, 2% split evenly, at least 2
+    private int reservedCustomers() {
+        return Math.max(2, customerCount / 50) & ~1;
+    }
+
+    // --- IDS AND NAMES --- //
+
+    // 6 characters of base 36
+    static String customerId(int index) {
+        return base36(Math.floorMod((index + 1L) * ID_MULTIPLIER, CUSTOMER_ID_SPACE), IdValidator.CUSTOMER_ID_LENGTH);
+    }
+
+    // CB for cabinet, AX for active and AV for VR, each then
+    // 8 characters, the bijection keeps them all distinct
+    static String gameId(int index, int type) {
+        String body = base36(Math.floorMod((index + 1L) * ID_MULTIPLIER, GAME_ID_SPACE), IdValidator.GAME_ID_LENGTH - 2);
+        return switch (type) {
+            case 0 -> "CB" + body;
+            case 1 -> "AX" + body;
+            default -> "AV" + body;
+        };
+    }
+
+    private static String base36(long value, int length) {
+        char[] digits = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            digits[i] = Character.toUpperCase(Character.forDigit((int) (value % 36), 36));
+            value /= 36;
+        }
+        return new String(digits);
+    }
+
+    private static long pow36(int exponent) {
+        long value = 1;
+        for (int i = 0; i < exponent; i++) {
+            value *= 36;
+        }
+        return value;
+    }
+
+    private static String name(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    // --- HELPERS --- //
+
+    // Index chosen in proportion to its weight
+    private static int pick(int[] weights, Random random) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int draw = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            draw -= weights[i];
+            if (draw < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static int[] weights(int... weights) {
+        int total = 0;
+        for (int weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weights can't be negative.");
+            }
+            total += weight;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("At least one weight must be positive.");
+        }
+        return weights;
+    }
+
+    private static int atLeast(int value, int minimum, String setting) {
+        if (value < minimum) {
+            throw new IllegalArgumentException(setting + " must be at least " + minimum + ".");
+        }
+        return value;
+    }
+
+    private static double nonNegative(double value, String setting) {
+        if (!(value >= 0)) {
+            throw new IllegalArgumentException(setting + " can't be negative.");
+        }
+        return value;
+    }
+
+    private static double fraction(double value, String setting) {
+        if (!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException(setting + " must be between 0 and 1.");
+        }
+        return value;
+    }
+
+    private static Writer writer(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    // Zipf distributed indexes 0 to n - 1, rank r is drawn
+    // with weight 1 / (r + 1)^exponent, ranks are shuffled
+    // onto indexes
+    private static final class Zipf {
+        private final double[] cumulative;
+        private final int[] indexes;
+        private final int n;
+
+        private Zipf(int n, double exponent, Random random) {
+            this.n = n;
+            if (exponent == 0) {
+                // Uniform, no tables needed
+                this.cumulative = null;
+                this.indexes = null;
+                return;
+            }
+            this.cumulative = new double[n];
+            double total = 0;
+            for (int r = 0; r < n; r++) {
+                total += 1 / Math.pow(r + 1, exponent);
+                cumulative[r] = total;
+            }
+            for (int r = 0; r < n; r++) {
+                cumulative[r] /= total;
+            }
+            // Fisher-Yates shuffle of ranks onto indexes
+            this.indexes = new int[n];
+            for (int i = 0; i < n; i++) {
+                indexes[i] = i;
+            }
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = indexes[i];
+                indexes[i] = indexes[j];
+                indexes[j] = swap;
+            }
+        }
+
+        private int next(Random random) {
+            if (cumulative == null) {
+                return random.nextInt(n);
+            }
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+            if (rank < 0) {
+                rank = -rank - 1;
+            }
+            return indexes[Math.min(rank, n - 1)];
+        }
+    }
+
+    // Counts of what was written
+    public static final class Summary {
+        private int games;
+        private int customers;
+        private long transactions;
+        private long plays;
+        private long declinedPlays;
+        private long addFunds;
+        private long newCustomers;
+        private long invalidRows;
+
+        private Summary() {
+        }
+
+        // Accessors //
+
+        public int getGames() {return games;}
+
+        public int getCustomers() {return customers;}
+
+        // Every transaction row, including top ups
+        public long getTransactions() {return transactions;}
+
+        public long getPlays() {return plays;}
+
+        // Plays with valid IDs written to decline
+        public long getDeclinedPlays() {return declinedPlays;}
+
+        public long getAddFunds() {return addFunds;}
+
+        public long getNewCustomers() {return newCustomers;}
+
+        // Rows with an invalid ID across all 3 files
+        public long getInvalidRows() {return invalidRows;}
+
+        @Override
+        public String toString() {
+            return "games = " + games + ", customers = " + customers + ", transactions = " + transactions
+                    + ", plays = " + plays + ", declined = " + declinedPlays + ", add funds = " + addFunds
+                    + ", new customers = " + newCustomers + ", invalid rows = " + invalidRows;
+        }
+    }
+
+    // Test harness //
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2) {
+            File directory = new File(args[0]);
+            int customers = Integer.parseInt(args[1]);
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+            Summary summary = new WorkloadGenerator(seed)
+                    .customers(customers)
+                    .games(Math.max(10, customers / 100))
+                    .transactions(customers)
+                    .write(new File(directory, "games.txt"), new File(directory, "customers.txt"),
+                            new File(directory, "transactions.txt"));
+            System.out.println(summary);
+            return;
+        }
+
+        System.out.println("\nWorkloadGenerator Tests:");
+        File directory = Files.createTempDirectory("workload").toFile();
+        File games = new File(directory, "games.txt");
+        File customers = new File(directory, "customers.txt");
+        File transactions = new File(directory, "transactions.txt");
+
+        // Same seed, same files
+        WorkloadGenerator generator = new WorkloadGenerator(7).customers(5_000).games(200).transactions(50_000)
+                .declineRate(0.1).invalidRate(0.02);
+        Summary summary = generator.write(games, customers, transactions);
+        byte[] first = Files.readAllBytes(transactions.toPath());
+        generator.write(games, customers, transactions);
+        if (Arrays.equals(first, Files.readAllBytes(transactions.toPath()))) {
+            System.out.println("Test 1 passed: " + summary);
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Replaying the files declines what was meant to decline
+        // Expected outcome: declines and invalid plays as written
+        PrintStream console = System.out;
+        Arcade arcade;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            arcade = Simulation.initialiseArcade("Workload Arcade", games, customers);
+            arcade.enableMetrics();
+            try (ReportWriter silent = new ReportWriter(OutputStream.nullOutputStream(), ReportWriter.Mode.SILENT)) {
+                Simulation.simulateFun(arcade, transactions, silent);
+            }
+        } finally {
+            System.setOut(console);
+        }
+        ArcadeMetrics.Snapshot metrics = arcade.getMetrics().snapshot();
+        long declined = metrics.getDeclines().get(TransactionResult.AGE_LIMIT)
+                + metrics.getDeclines().get(TransactionResult.INSUFFICIENT_BALANCE);
+        long invalid = metrics.getDeclines().get(TransactionResult.INVALID_CUSTOMER)
+                + metrics.getDeclines().get(TransactionResult.INVALID_GAME);
+        double rate = (double) declined / summary.getPlays();
+        if (declined == summary.getDeclinedPlays() && Math.abs(rate - 0.1) < 0.01
+                && arcade.getGameCatalogue().size() == 200 && invalid > 0) {
+            System.out.printf("Test 2 passed: decline rate = %.3f, invalid plays = %d\n", rate, invalid);
+        } else {
+            System.err.printf("Test 2 failed: declined = %d of %d expected, invalid plays = %d\n",
+                    declined, summary.getDeclinedPlays(), invalid);
+        }
+
+        // Popularity is skewed, the top game gets far more than
+        // an even share of plays
+        long top = 0;
+        for (long plays : metrics.getPlaysByGame().values()) {
+            top = Math.max(top, plays);
+        }
+        if (top > 10 * metrics.getTotalPlays() / 200) {
+            System.out.println("Test 3 passed: top game plays = " + top + " of " + metrics.getTotalPlays());
+        } else {
+            System.err.println("Test 3 failed: top game plays = " + top + " of " + metrics.getTotalPlays());
+        }
+
+        games.delete();
+        customers.delete();
+        transactions.delete();
+        directory.delete();
+    }
+}
@@ -0,0 +1,141 @@
+/*************************************************************************
+
+ File: CompactId.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Packs alphanumeric IDs into a long, each character is a
+ base 62 digit, so a 6 character customer ID or a 10
+ character game ID (62^10 < 2^63) fits in one primitive
+ Encoding is one pass with a lookup table and no
+ allocation, IDs can be encoded from a String or straight
+ from the bytes of an input row
+ Invalid IDs encode to INVALID, valid IDs are never negative
+ Only IDs of the same length can be compared, e.g. "0A"
+ and "A" encode to the same value
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package validation;
+
+import java.util.Arrays;
+
+public final class CompactId {
+
+    // Member Variables //
+    // Returned for IDs that aren't alphanumeric or too long
+    public static final long INVALID = -1;
+    // Longest ID that fits in a long
+    public static final int MAX_LENGTH = 10;
+
+    private static final int BASE = 62;
+    private static final char[] DIGITS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    // Digit value of each ASCII character, -1 if not alphanumeric
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+    }
+
+    // Constructor //
+    // Static utility, never instantiated
+    private CompactId() {
+    }
+
+    // Functions //
+
+    // Encodes an ID of exactly length characters
+    public static long encode(CharSequence id, int length) {
+        if (id == null || id.length() != length || length > MAX_LENGTH) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c >= VALUES.length || VALUES[c] < 0) {
+                return INVALID;
+            }
+            value = value * BASE + VALUES[c];
+        }
+        return value;
+    }
+
+    // Encodes count ASCII bytes from offset, which must be
+    // exactly length characters
+    public static long encode(byte[] bytes, int offset, int count, int length) {
+        if (count != length || length > MAX_LENGTH) {
+            return INVALID;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            byte b = bytes[i];
+            if (b < 0 || VALUES[b] < 0) {
+                return INVALID;
+            }
+            value = value * BASE + VALUES[b];
+        }
+        return value;
+    }
+
+    public static long encodeCustomerId(CharSequence id) {
+        return encode(id, IdValidator.CUSTOMER_ID_LENGTH);
+    }
+
+    public static long encodeGameId(CharSequence id) {
+        return encode(id, IdValidator.GAME_ID_LENGTH);
+    }
+
+    // Turns an encoded ID back into its String of length characters
+    public static String decode(long value, int length) {
+        if (value < 0 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Not an encoded ID: " + value);
+        }
+        char[] id = new char[length];
+        for (int i = length - 1; i >= 0; i--) {
+            id[i] = DIGITS[(int) (value % BASE)];
+            value /= BASE;
+        }
+        if (value != 0) {
+            throw new IllegalArgumentException("Encoded ID longer than " + length + " characters.");
+        }
+        return new String(id);
+    }
+
+    // Test harness //
+    public static void main(String[] args) {
+        System.out.println("\nCompactId Tests:");
+
+        // Round trip of customer and game IDs
+        long customer = encodeCustomerId("A1b2C3");
+        long game = encodeGameId("zzzzzzzzzz");
+        if (decode(customer, 6).equals("A1b2C3") && decode(game, 10).equals("zzzzzzzzzz") && game > 0) {
+            System.out.println("Test 1 passed: " + customer + ", " + game);
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Invalid IDs
+        if (encodeCustomerId("AB-123") == INVALID && encodeCustomerId("A1b2C") == INVALID
+                && encodeCustomerId(null) == INVALID && encodeGameId("AV8765432£") == INVALID) {
+            System.out.println("Test 2 passed");
+        } else {
+            System.err.println("Test 2 failed");
+        }
+
+        // Bytes encode the same as Strings
+        byte[] row = "PLAY,A1b2C3".getBytes();
+        if (encode(row, 5, 6, 6) == customer && encode(row, 5, 5, 6) == INVALID) {
+            System.out.println("Test 3 passed");
+        } else {
+            System.err.println("Test 3 failed");
+        }
+    }
+}
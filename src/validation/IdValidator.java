@@ -0,0 +1,118 @@
+/*************************************************************************
+
+ File: IdValidator.java
+
+ Author: Hayden Jones
+
+ Date started: 17/10/2026
+
+ Description:
+ Validates customer and game IDs without regular expressions
+ Uses a character class lookup table so checking an ID is a
+ single pass over its characters with no allocation
+ Also provides a batch API which validates a whole column of
+ IDs and returns a bitmap of the rows that failed
+
+ History: 17/10/2026 v 1.00
+
+ *************************************************************************/
+package validation;
+
+import java.util.BitSet;
+
+public final class IdValidator {
+
+    // Member Variables //
+    // Required ID lengths
+    public static final int CUSTOMER_ID_LENGTH = 6;
+    public static final int GAME_ID_LENGTH = 10;
+
+    // Lookup table, true for [a-zA-Z0-9]
+    private static final boolean[] ALPHANUMERIC = new boolean[128];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            ALPHANUMERIC[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            ALPHANUMERIC[c] = true;
+            ALPHANUMERIC[Character.toUpperCase(c)] = true;
+        }
+    }
+
+    // Constructor //
+    // Static utility, never instantiated
+    private IdValidator() {
+    }
+
+    // Functions //
+
+    // Checks if id is exactly length alphanumeric characters
+    public static boolean isValid(String id, int length) {
+        if (id == null || id.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c >= ALPHANUMERIC.length || !ALPHANUMERIC[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean isValidCustomerId(String id) {
+        return isValid(id, CUSTOMER_ID_LENGTH);
+    }
+
+    public static boolean isValidGameId(String id) {
+        return isValid(id, GAME_ID_LENGTH);
+    }
+
+    // Validates a column of IDs in one pass
+    // bit i of the result is set if ids[i] is invalid
+    public static BitSet findInvalid(String[] ids, int length) {
+        return findInvalid(ids, length, "");
+    }
+
+    // As above, also requiring every ID to start with prefix
+    // e.g. "AV" for a column of virtual reality game IDs
+    public static BitSet findInvalid(String[] ids, int length, String prefix) {
+        BitSet failures = new BitSet(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            if (!isValid(ids[i], length) || !ids[i].startsWith(prefix)) {
+                failures.set(i);
+            }
+        }
+        return failures;
+    }
+
+    // Test harness //
+    public static void main(String[] args) {
+        System.out.println("\nIdValidator Tests:");
+
+        // Valid customer and game IDs
+        if (isValidCustomerId("A1b2C3") && isValidGameId("AV87654321")) {
+            System.out.println("Test 1 passed");
+        } else {
+            System.err.println("Test 1 failed");
+        }
+
+        // Wrong length, null and non-alphanumeric IDs
+        if (!isValidCustomerId("321") && !isValidCustomerId(null)
+                && !isValidCustomerId("AB-123") && !isValidGameId("AV8765432£")) {
+            System.out.println("Test 2 passed");
+        } else {
+            System.err.println("Test 2 failed");
+        }
+
+        // Batch validation
+        // Expected outcome: {1, 2, 3}
+        BitSet failures = findInvalid(new String[]{"AV00000001", "AX00000001", "AV0000002", "CV00000001"}, 10, "AV");
+        if (failures.equals(BitSet.valueOf(new long[]{0b1110}))) {
+            System.out.println("Test 3 passed: " + failures);
+        } else {
+            System.err.println("Test 3 failed: " + failures);
+        }
+    }
+}